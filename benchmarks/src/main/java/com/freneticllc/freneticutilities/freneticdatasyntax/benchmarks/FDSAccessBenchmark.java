@@ -0,0 +1,71 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax.benchmarks;
+
+import com.freneticllc.freneticutilities.freneticdatasyntax.FDSData;
+import com.freneticllc.freneticutilities.freneticdatasyntax.FDSSection;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks reading and writing values on deep paths of a loaded document.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FDSAccessBenchmark {
+
+    @Param({"4", "24"})
+    public int depth;
+
+    public FDSSection section;
+
+    public String path;
+
+    public String pathUpper;
+
+    public String newPath;
+
+    public int counter;
+
+    @Setup
+    public void setup() {
+        section = new FDSSection(FDSDocuments.generate(FDSDocuments.Shape.DEEP, depth));
+        path = FDSDocuments.deepestPath(depth);
+        pathUpper = path.toUpperCase();
+        newPath = path.substring(0, path.lastIndexOf('.')) + ".written";
+        if (section.getData(path) == null || section.getDataLowered(pathUpper) == null) {
+            throw new IllegalStateException("Deepest path `" + path + "` not found in the generated document");
+        }
+    }
+
+    @Benchmark
+    public FDSData getData() {
+        return section.getData(path);
+    }
+
+    @Benchmark
+    public FDSData getDataLowered() {
+        return section.getDataLowered(pathUpper);
+    }
+
+    @Benchmark
+    public FDSSection set() {
+        section.set(newPath, counter++);
+        return section;
+    }
+
+    @Benchmark
+    public FDSSection setData() {
+        section.setData(newPath, new FDSData(counter++));
+        return section;
+    }
+}
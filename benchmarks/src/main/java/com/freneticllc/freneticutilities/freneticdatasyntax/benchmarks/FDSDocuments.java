@@ -0,0 +1,154 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax.benchmarks;
+
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Generates synthetic FDS documents for benchmarking.
+ * Output is deterministic for a given shape and size.
+ */
+public class FDSDocuments {
+
+    /**
+     * The document shapes available.
+     */
+    public enum Shape {
+        /**
+         * Many keys in a few shallow sections.
+         */
+        WIDE,
+        /**
+         * Sections nested many levels deep.
+         */
+        DEEP,
+        /**
+         * Mostly lists of numbers and text.
+         */
+        LIST_HEAVY,
+        /**
+         * Every key preceded by several comment lines.
+         */
+        COMMENT_HEAVY,
+        /**
+         * Mostly binary (Base64) values.
+         */
+        BINARY_HEAVY
+    }
+
+    /**
+     * The nesting depth used by deep documents.
+     */
+    public static final int DEEP_DEPTH = 24;
+
+    /**
+     * Generates a document.
+     * @param shape The shape of the document.
+     * @param size The approximate number of values in the document.
+     * @return The document text.
+     */
+    public static String generate(Shape shape, int size) {
+        Random random = new Random(size * 31L + shape.ordinal());
+        StringBuilder builder = new StringBuilder(size * 40);
+        switch (shape) {
+            case WIDE:
+                for (int i = 0; i < size; i++) {
+                    if (i % 1000 == 0) {
+                        builder.append("group").append(i / 1000).append(":\n");
+                    }
+                    appendScalar(builder, "    ", "key" + i, random);
+                }
+                break;
+            case DEEP:
+                for (int written = 0, block = 0; written < size; block++) {
+                    String tabs = "";
+                    for (int depth = 0; depth < DEEP_DEPTH && written < size; depth++) {
+                        builder.append(tabs).append("level").append(depth);
+                        if (depth == 0) {
+                            // Each block needs its own root key, or loading would merge every block into one.
+                            builder.append('_').append(block);
+                        }
+                        builder.append(":\n");
+                        tabs += "    ";
+                        appendScalar(builder, tabs, "value" + written, random);
+                        written++;
+                    }
+                    builder.append("branch").append(written).append(": end\n");
+                }
+                break;
+            case LIST_HEAVY:
+                for (int i = 0; i < size; i += 50) {
+                    builder.append("series").append(i).append(":\n");
+                    for (int j = 0; j < 50; j++) {
+                        if (j % 2 == 0) {
+                            builder.append("- ").append(random.nextInt(100000)).append('\n');
+                        }
+                        else {
+                            builder.append("- ").append(random.nextDouble()).append('\n');
+                        }
+                    }
+                    builder.append("names").append(i).append(":\n");
+                    for (int j = 0; j < 10; j++) {
+                        builder.append("- item number ").append(j).append('\n');
+                    }
+                }
+                break;
+            case COMMENT_HEAVY:
+                builder.append("# File header comment\n");
+                for (int i = 0; i < size; i++) {
+                    builder.append("# Comment line one for key ").append(i).append('\n');
+                    builder.append("#   Comment line two, with some more text in it.\n");
+                    builder.append("#\n");
+                    appendScalar(builder, "", "key" + i, random);
+                }
+                builder.append("# Trailing comment\n");
+                break;
+            case BINARY_HEAVY:
+                for (int i = 0; i < size; i++) {
+                    byte[] blob = new byte[256 + random.nextInt(1024)];
+                    random.nextBytes(blob);
+                    builder.append("blob").append(i).append("= ").append(Base64.getEncoder().encodeToString(blob)).append('\n');
+                }
+                break;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Generates the dotted path to the deepest value of the first block of a deep document.
+     * @param size The size the document was generated with.
+     * @return The path.
+     */
+    public static String deepestPath(int size) {
+        StringBuilder builder = new StringBuilder("level0_0.");
+        int depth = Math.min(size, DEEP_DEPTH);
+        for (int i = 1; i < depth; i++) {
+            builder.append("level").append(i).append('.');
+        }
+        return builder.append("value").append(depth - 1).toString();
+    }
+
+    private static void appendScalar(StringBuilder builder, String tabs, String key, Random random) {
+        builder.append(tabs).append(key).append(": ");
+        switch (random.nextInt(4)) {
+            case 0:
+                builder.append(random.nextInt(1000000));
+                break;
+            case 1:
+                builder.append(random.nextDouble());
+                break;
+            case 2:
+                builder.append(random.nextBoolean());
+                break;
+            default:
+                builder.append("some text value with spaces\\nand an escape");
+                break;
+        }
+        builder.append('\n');
+    }
+}
@@ -0,0 +1,50 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax.benchmarks;
+
+import com.freneticllc.freneticutilities.freneticdatasyntax.FDSSection;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks loading and saving whole documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FDSParseBenchmark {
+
+    @Param({"WIDE", "DEEP", "LIST_HEAVY", "COMMENT_HEAVY", "BINARY_HEAVY"})
+    public FDSDocuments.Shape shape;
+
+    @Param({"100", "10000"})
+    public int size;
+
+    public String text;
+
+    public FDSSection section;
+
+    @Setup
+    public void setup() {
+        text = FDSDocuments.generate(shape, size);
+        section = new FDSSection(text);
+    }
+
+    @Benchmark
+    public FDSSection parse() {
+        return new FDSSection(text);
+    }
+
+    @Benchmark
+    public String save() {
+        return section.savetoString();
+    }
+}
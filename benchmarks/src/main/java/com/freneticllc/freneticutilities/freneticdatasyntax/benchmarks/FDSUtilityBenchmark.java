@@ -0,0 +1,81 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax.benchmarks;
+
+import com.freneticllc.freneticutilities.freneticdatasyntax.FDSSection;
+import com.freneticllc.freneticutilities.freneticdatasyntax.FDSUtility;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the value helpers used while loading and saving.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FDSUtilityBenchmark {
+
+    /**
+     * The inputs to type interpretation, kept in their own state so that the other benchmarks are not repeated for each one.
+     */
+    @State(Scope.Thread)
+    public static class TypedInput {
+
+        @Param({"12345", "3.14159", "true", "plain text value"})
+        public String typed;
+    }
+
+    @Param({"4096"})
+    public int binarySize;
+
+    public String escaped = "line one\\nline two\\twith tab \\\\ and backslash\\x";
+
+    public String unescaped = "line one\nline two\twith tab \\ and backslash ";
+
+    public FDSSection binarySection;
+
+    public String binaryText;
+
+    @Setup
+    public void setup() {
+        byte[] blob = new byte[binarySize];
+        new Random(binarySize).nextBytes(blob);
+        binaryText = "blob= " + Base64.getEncoder().encodeToString(blob) + "\n";
+        binarySection = new FDSSection(binaryText);
+    }
+
+    @Benchmark
+    public Object interpretType(TypedInput input) {
+        return FDSUtility.interpretType(input.typed);
+    }
+
+    @Benchmark
+    public String escape() {
+        return FDSUtility.escape(unescaped);
+    }
+
+    @Benchmark
+    public String unEscape() {
+        return FDSUtility.unEscape(escaped);
+    }
+
+    @Benchmark
+    public FDSSection loadBinary() {
+        return new FDSSection(binaryText);
+    }
+
+    @Benchmark
+    public String saveBinary() {
+        return binarySection.savetoString();
+    }
+}
@@ -0,0 +1,763 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Read-only storage of an FDS section tree in off-heap memory, for very large data sets.
+ * The whole tree is held in two direct buffers (one for structure, one for text and binary data),
+ * so it adds almost nothing to the garbage collected heap. Read it through "getRoot()".
+ * Build one from a loaded section with "build", or straight from FDS text with "load" (which never builds the section tree).
+ * Comments are not stored. Each buffer is limited to 2 GiB.
+ * Close the arena when done with it: this frees its memory immediately, and afterward any use of its views throws an IllegalStateException.
+ * Reads are safe from any number of threads. Each read holds a shared lock on the arena,
+ * and closing waits for reads already running to finish, so no read ever touches freed memory.
+ */
+public class FDSArena implements AutoCloseable {
+
+    static final int TYPE_SECTION = 1, TYPE_STRING = 2, TYPE_LONG = 3, TYPE_DOUBLE = 4, TYPE_BOOLEAN = 5, TYPE_BINARY = 6, TYPE_LIST = 7;
+
+    /**
+     * Section block layout: count, table size, then the entries, then the hash table (entry index + 1, or 0 for empty).
+     */
+    static final int SECTION_HEADER = 8;
+
+    /**
+     * Entry layout: key offset, key length, lowercase key hash, type, payload (8 bytes).
+     */
+    static final int ENTRY_SIZE = 24;
+
+    /**
+     * List block layout: count, then the items.
+     */
+    static final int LIST_HEADER = 4;
+
+    /**
+     * List item layout: type, payload (8 bytes).
+     */
+    static final int ITEM_SIZE = 12;
+
+    /**
+     * Builds an arena holding a copy of a section tree.
+     * The section is not changed, and may be discarded afterward.
+     * @param section The section to copy.
+     * @return The arena.
+     */
+    public static FDSArena build(FDSSection section) {
+        Sizer sizer = new Sizer();
+        sizer.section(section);
+        if (sizer.nodeBytes > Integer.MAX_VALUE || sizer.stringBytes > Integer.MAX_VALUE) {
+            throw new FDSInputException("Section too large for an arena: " + sizer.nodeBytes + " structure bytes, " + sizer.stringBytes + " data bytes");
+        }
+        ByteBuffer nodes = ByteBuffer.allocateDirect((int) sizer.nodeBytes);
+        ByteBuffer strings = ByteBuffer.allocateDirect((int) sizer.stringBytes);
+        Writer writer = new Writer(nodes, strings);
+        int rootOffset = writer.section(section);
+        return new FDSArena(nodes, strings, rootOffset, section.sectionPathSplit);
+    }
+
+    /**
+     * Loads FDS text straight into an arena, without building a section tree first.
+     * Only the entries of the currently open sections are held on the heap while loading, in plain arrays.
+     * Works as "FDSSection.parse" would: a key set twice in one section keeps the later value at the earlier key's position.
+     * @param input The text to load.
+     * @return The arena.
+     * @throws IOException If the input fails.
+     */
+    public static FDSArena load(Reader input) throws IOException {
+        try (FDSReader reader = new FDSReader(input)) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * Loads events from a reader straight into an arena, without building a section tree first.
+     * The reader is read up to its END event, and is not closed. In lenient mode, errors are left on the reader (see "FDSReader.getErrors").
+     * Only the entries of the currently open sections are held on the heap while loading, in plain arrays.
+     * A key set twice in one section keeps the later value at the earlier key's position, as in a loaded section.
+     * @param reader The reader to take events from.
+     * @return The arena.
+     * @throws IOException If the input fails.
+     */
+    public static FDSArena load(FDSReader reader) throws IOException {
+        Loader loader = new Loader();
+        try {
+            int rootOffset = loader.run(reader);
+            ByteBuffer nodes = loader.trim(loader.nodes, loader.nodeCursor);
+            ByteBuffer strings = loader.trim(loader.strings, loader.strings.position());
+            return new FDSArena(nodes, strings, rootOffset, FDSUtility.defaultSectionPathSplit);
+        }
+        finally {
+            free(loader.nodes);
+            free(loader.strings);
+        }
+    }
+
+    private FDSArena(ByteBuffer nodes, ByteBuffer strings, int rootOffset, char sectionPathSplit) {
+        this.nodes = nodes;
+        this.strings = strings;
+        this.sectionPathSplit = sectionPathSplit;
+        root = new FDSArenaSection(this, rootOffset);
+    }
+
+    /**
+     * The structure buffer, or null once closed. Only read it while holding a read lock (see "startRead").
+     */
+    ByteBuffer nodes;
+
+    /**
+     * The text and binary data buffer, or null once closed. Only read it while holding a read lock (see "startRead").
+     */
+    ByteBuffer strings;
+
+    /**
+     * Held shared by every read, and exclusively by "close".
+     */
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * The section path splitter for views of this arena.
+     */
+    public final char sectionPathSplit;
+
+    private final FDSArenaSection root;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Gets the root section view.
+     * @return The root section.
+     */
+    public FDSArenaSection getRoot() {
+        check();
+        return root;
+    }
+
+    /**
+     * Returns how many bytes of off-heap memory this arena holds.
+     * @return The size in bytes.
+     */
+    public long getMemorySize() {
+        long stamp = startRead();
+        try {
+            return (long) nodes.capacity() + strings.capacity();
+        }
+        finally {
+            endRead(stamp);
+        }
+    }
+
+    /**
+     * Returns whether this arena has been closed.
+     * @return Whether it is closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes this arena and frees its memory. Any later use of its views throws an IllegalStateException.
+     * Waits for any reads already running on other threads to finish first.
+     */
+    @Override
+    public void close() {
+        ByteBuffer oldNodes, oldStrings;
+        long stamp = lock.writeLock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            oldNodes = nodes;
+            oldStrings = strings;
+            nodes = null;
+            strings = null;
+        }
+        finally {
+            lock.unlockWrite(stamp);
+        }
+        free(oldNodes);
+        free(oldStrings);
+    }
+
+    /**
+     * Starts a read of the buffers, throwing if this arena has been closed.
+     * The buffers stay valid until the returned stamp is passed to "endRead". Reads must not be nested.
+     */
+    long startRead() {
+        long stamp = lock.readLock();
+        if (closed) {
+            lock.unlockRead(stamp);
+            throw new IllegalStateException("FDS arena has been closed");
+        }
+        return stamp;
+    }
+
+    /**
+     * Ends a read started by "startRead".
+     */
+    void endRead(long stamp) {
+        lock.unlockRead(stamp);
+    }
+
+    /**
+     * Releases a direct buffer's memory now, rather than when it is garbage collected.
+     * Falls back to leaving it for the garbage collector if the running Java version does not allow this.
+     */
+    private static void free(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            }
+            catch (NoSuchMethodException ex) {
+                // Java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    Method clean = cleaner.getClass().getMethod("clean");
+                    clean.setAccessible(true);
+                    clean.invoke(cleaner);
+                }
+                return;
+            }
+            invokeCleaner.invoke(unsafe, buffer);
+        }
+        catch (ReflectiveOperationException | RuntimeException ex) {
+            // Ignore, the garbage collector will free it.
+        }
+    }
+
+    /**
+     * Throws if this arena has been closed.
+     */
+    void check() {
+        if (closed) {
+            throw new IllegalStateException("FDS arena has been closed");
+        }
+    }
+
+    /**
+     * Decodes a UTF-8 string from the data buffer.
+     */
+    String readString(int offset, int length) {
+        byte[] bytes = readBytes(offset, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copies bytes out of the data buffer.
+     */
+    byte[] readBytes(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = strings.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Gets the hash table size for a section with a given number of entries.
+     */
+    static int tableSize(int count) {
+        return count == 0 ? 0 : Integer.highestOneBit(count * 2 - 1) << 1;
+    }
+
+    /**
+     * Gets the hash used to find a key (the hash of its lowercase form).
+     */
+    static int keyHash(String loweredKey) {
+        int hash = loweredKey.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Measures the buffer sizes needed for a section tree.
+     */
+    private static class Sizer {
+
+        long nodeBytes;
+
+        long stringBytes;
+
+        @SuppressWarnings("unchecked")
+        void section(FDSSection section) {
+            Map<String, FDSData> entries = section.rootEntries();
+            int count = entries.size();
+            nodeBytes += SECTION_HEADER + (long) count * ENTRY_SIZE + (long) tableSize(count) * 4;
+            for (Map.Entry<String, FDSData> entry : entries.entrySet()) {
+                stringBytes += FDSUtility.utf8Length(entry.getKey(), 0, entry.getKey().length());
+                Object value = entry.getValue().internal;
+                if (value instanceof FDSSection) {
+                    section((FDSSection) value);
+                }
+                else if (value instanceof ArrayList) {
+                    ArrayList<FDSData> list = (ArrayList<FDSData>) value;
+                    nodeBytes += LIST_HEADER + (long) list.size() * ITEM_SIZE;
+                    for (FDSData item : list) {
+                        scalar(item.internal);
+                    }
+                }
+                else if (value instanceof long[]) {
+                    nodeBytes += LIST_HEADER + (long) ((long[]) value).length * ITEM_SIZE;
+                }
+                else if (value instanceof double[]) {
+                    nodeBytes += LIST_HEADER + (long) ((double[]) value).length * ITEM_SIZE;
+                }
+                else {
+                    scalar(value);
+                }
+            }
+        }
+
+        void scalar(Object value) {
+            if (value instanceof FDSBinary) {
+                stringBytes += ((FDSBinary) value).length();
+            }
+            else if (value instanceof byte[]) {
+                stringBytes += ((byte[]) value).length;
+            }
+            else if (!(value instanceof Long || value instanceof Integer || value instanceof Double || value instanceof Float || value instanceof Boolean)) {
+                String text = String.valueOf(value);
+                stringBytes += FDSUtility.utf8Length(text, 0, text.length());
+            }
+        }
+    }
+
+    /**
+     * Writes a section tree into an arena's buffers.
+     */
+    private static class Writer {
+
+        Writer(ByteBuffer nodes, ByteBuffer strings) {
+            this.nodes = nodes;
+            this.strings = strings;
+        }
+
+        final ByteBuffer nodes;
+
+        final ByteBuffer strings;
+
+        int nodeCursor = 0;
+
+        int section(FDSSection section) {
+            Map<String, FDSData> entries = section.rootEntries();
+            int count = entries.size();
+            int tableSize = tableSize(count);
+            int offset = nodeCursor;
+            nodeCursor += SECTION_HEADER + count * ENTRY_SIZE + tableSize * 4;
+            nodes.putInt(offset, count);
+            nodes.putInt(offset + 4, tableSize);
+            int tableOffset = offset + SECTION_HEADER + count * ENTRY_SIZE;
+            int index = 0;
+            for (Map.Entry<String, FDSData> entry : entries.entrySet()) {
+                int entryOffset = offset + SECTION_HEADER + index * ENTRY_SIZE;
+                String key = entry.getKey();
+                int keyOffset = strings.position();
+                strings.put(key.getBytes(StandardCharsets.UTF_8));
+                int hash = keyHash(FDSUtility.toLowerCase(key));
+                nodes.putInt(entryOffset, keyOffset);
+                nodes.putInt(entryOffset + 4, strings.position() - keyOffset);
+                nodes.putInt(entryOffset + 8, hash);
+                Object value = entry.getValue().internal;
+                if (value instanceof FDSSection) {
+                    nodes.putInt(entryOffset + 12, TYPE_SECTION);
+                    nodes.putLong(entryOffset + 16, section((FDSSection) value));
+                }
+                else if (value instanceof ArrayList || value instanceof long[] || value instanceof double[]) {
+                    nodes.putInt(entryOffset + 12, TYPE_LIST);
+                    nodes.putLong(entryOffset + 16, list(value));
+                }
+                else {
+                    scalar(value, entryOffset + 12);
+                }
+                int slot = hash & (tableSize - 1);
+                while (nodes.getInt(tableOffset + slot * 4) != 0) {
+                    slot = (slot + 1) & (tableSize - 1);
+                }
+                nodes.putInt(tableOffset + slot * 4, index + 1);
+                index++;
+            }
+            return offset;
+        }
+
+        @SuppressWarnings("unchecked")
+        int list(Object value) {
+            int offset = nodeCursor;
+            if (value instanceof long[]) {
+                long[] packed = (long[]) value;
+                nodeCursor += LIST_HEADER + packed.length * ITEM_SIZE;
+                nodes.putInt(offset, packed.length);
+                for (int i = 0; i < packed.length; i++) {
+                    nodes.putInt(offset + LIST_HEADER + i * ITEM_SIZE, TYPE_LONG);
+                    nodes.putLong(offset + LIST_HEADER + i * ITEM_SIZE + 4, packed[i]);
+                }
+            }
+            else if (value instanceof double[]) {
+                double[] packed = (double[]) value;
+                nodeCursor += LIST_HEADER + packed.length * ITEM_SIZE;
+                nodes.putInt(offset, packed.length);
+                for (int i = 0; i < packed.length; i++) {
+                    nodes.putInt(offset + LIST_HEADER + i * ITEM_SIZE, TYPE_DOUBLE);
+                    nodes.putLong(offset + LIST_HEADER + i * ITEM_SIZE + 4, Double.doubleToRawLongBits(packed[i]));
+                }
+            }
+            else {
+                ArrayList<FDSData> list = (ArrayList<FDSData>) value;
+                nodeCursor += LIST_HEADER + list.size() * ITEM_SIZE;
+                nodes.putInt(offset, list.size());
+                for (int i = 0; i < list.size(); i++) {
+                    scalar(list.get(i).internal, offset + LIST_HEADER + i * ITEM_SIZE);
+                }
+            }
+            return offset;
+        }
+
+        /**
+         * Writes a scalar value as a type and payload at the given structure offset.
+         */
+        void scalar(Object value, int offset) {
+            int type = scalarType(value);
+            long payload;
+            if (type == TYPE_STRING || type == TYPE_BINARY) {
+                byte[] bytes = scalarBytes(value);
+                payload = ((long) strings.position() << 32) | bytes.length;
+                strings.put(bytes);
+            }
+            else {
+                payload = inlinePayload(value, type);
+            }
+            nodes.putInt(offset, type);
+            nodes.putLong(offset + 4, payload);
+        }
+    }
+
+    /**
+     * Gets the stored type of a scalar value.
+     */
+    static int scalarType(Object value) {
+        if (value instanceof Long || value instanceof Integer) {
+            return TYPE_LONG;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return TYPE_DOUBLE;
+        }
+        if (value instanceof Boolean) {
+            return TYPE_BOOLEAN;
+        }
+        if (value instanceof FDSBinary || value instanceof byte[]) {
+            return TYPE_BINARY;
+        }
+        return TYPE_STRING;
+    }
+
+    /**
+     * Gets the payload of a long, double, or boolean value, which is stored directly in the structure.
+     */
+    static long inlinePayload(Object value, int type) {
+        switch (type) {
+            case TYPE_LONG:
+                return ((Number) value).longValue();
+            case TYPE_DOUBLE:
+                return Double.doubleToRawLongBits(((Number) value).doubleValue());
+            default:
+                return ((Boolean) value) ? 1 : 0;
+        }
+    }
+
+    /**
+     * Gets the bytes of a string or binary value, which are stored in the data buffer.
+     */
+    static byte[] scalarBytes(Object value) {
+        if (value instanceof FDSBinary) {
+            return ((FDSBinary) value).getBytes();
+        }
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The entries of a section (or items of a list) that has been started but not yet written.
+     */
+    private static class Pending {
+
+        int keyOffset, keyLength, hash;
+
+        int count;
+
+        int[] keyOffsets = new int[8], keyLengths = new int[8], hashes = new int[8], types = new int[8];
+
+        long[] payloads = new long[8];
+
+        void add(int keyOffset, int keyLength, int hash, int type, long payload) {
+            if (count == types.length) {
+                int size = count * 2;
+                keyOffsets = Arrays.copyOf(keyOffsets, size);
+                keyLengths = Arrays.copyOf(keyLengths, size);
+                hashes = Arrays.copyOf(hashes, size);
+                types = Arrays.copyOf(types, size);
+                payloads = Arrays.copyOf(payloads, size);
+            }
+            keyOffsets[count] = keyOffset;
+            keyLengths[count] = keyLength;
+            hashes[count] = hash;
+            types[count] = type;
+            payloads[count] = payload;
+            count++;
+        }
+    }
+
+    /**
+     * Writes reader events into growing buffers.
+     * Sections and lists are written when they end, so children come before their parents and the root is written last.
+     */
+    private static class Loader {
+
+        ByteBuffer nodes = ByteBuffer.allocateDirect(4096);
+
+        ByteBuffer strings = ByteBuffer.allocateDirect(4096);
+
+        int nodeCursor = 0;
+
+        /**
+         * The open sections, root first. Entries past "depth" are kept for reuse.
+         */
+        final ArrayList<Pending> open = new ArrayList<>();
+
+        int depth = 0;
+
+        /**
+         * The open list, if any.
+         */
+        final Pending list = new Pending();
+
+        /**
+         * Holds just the key of the current single value.
+         */
+        final Pending value = new Pending();
+
+        int[] table = new int[16];
+
+        /**
+         * Reads all events, returning the root section's offset.
+         */
+        int run(FDSReader reader) throws IOException {
+            push();
+            while (true) {
+                switch (reader.next()) {
+                    case SECTION_START:
+                        key(reader.getKey(), push());
+                        break;
+                    case SECTION_END:
+                        Pending section = open.get(--depth);
+                        open.get(depth - 1).add(section.keyOffset, section.keyLength, section.hash, TYPE_SECTION, section(section));
+                        break;
+                    case VALUE:
+                        key(reader.getKey(), value);
+                        Object data = reader.getValue();
+                        int type = scalarType(data);
+                        open.get(depth - 1).add(value.keyOffset, value.keyLength, value.hash, type, payload(data, type));
+                        break;
+                    case LIST_START:
+                        key(reader.getKey(), list);
+                        list.count = 0;
+                        break;
+                    case LIST_ITEM:
+                        Object item = reader.getValue();
+                        int itemType = scalarType(item);
+                        list.add(0, 0, 0, itemType, payload(item, itemType));
+                        break;
+                    case LIST_END:
+                        open.get(depth - 1).add(list.keyOffset, list.keyLength, list.hash, TYPE_LIST, list());
+                        break;
+                    default:
+                        return section(open.get(0));
+                }
+            }
+        }
+
+        Pending push() {
+            if (depth == open.size()) {
+                open.add(new Pending());
+            }
+            Pending section = open.get(depth++);
+            section.count = 0;
+            return section;
+        }
+
+        /**
+         * Stores a key's text, and records it as the key of the given pending section or list.
+         */
+        void key(String key, Pending target) {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            target.keyOffset = appendString(bytes);
+            target.keyLength = bytes.length;
+            target.hash = keyHash(FDSUtility.toLowerCase(key));
+        }
+
+        long payload(Object value, int type) {
+            if (type == TYPE_STRING || type == TYPE_BINARY) {
+                byte[] bytes = scalarBytes(value);
+                return ((long) appendString(bytes) << 32) | bytes.length;
+            }
+            return inlinePayload(value, type);
+        }
+
+        int appendString(byte[] bytes) {
+            int offset = strings.position();
+            if ((long) offset + bytes.length > Integer.MAX_VALUE) {
+                throw new FDSInputException("Input too large for an arena: over 2 GiB of data bytes");
+            }
+            if (strings.remaining() < bytes.length) {
+                strings = grow(strings, offset, offset + bytes.length);
+            }
+            strings.put(bytes);
+            return offset;
+        }
+
+        /**
+         * Reserves space in the structure buffer, returning its offset.
+         */
+        int reserve(long size) {
+            long end = nodeCursor + size;
+            if (end > Integer.MAX_VALUE) {
+                throw new FDSInputException("Input too large for an arena: over 2 GiB of structure bytes");
+            }
+            if (end > nodes.capacity()) {
+                nodes = grow(nodes, nodeCursor, (int) end);
+            }
+            int offset = nodeCursor;
+            nodeCursor = (int) end;
+            return offset;
+        }
+
+        /**
+         * Writes a finished section, merging any repeated keys, and returns its offset.
+         */
+        int section(Pending section) {
+            int tableSize = tableSize(section.count);
+            if (table.length < tableSize) {
+                table = new int[tableSize];
+            }
+            else {
+                Arrays.fill(table, 0, tableSize, 0);
+            }
+            int unique = 0;
+            for (int i = 0; i < section.count; i++) {
+                int slot = section.hashes[i] & (tableSize - 1);
+                while (true) {
+                    int other = table[slot] - 1;
+                    if (other < 0) {
+                        table[slot] = i + 1;
+                        unique++;
+                        break;
+                    }
+                    if (section.hashes[other] == section.hashes[i] && sameKey(section.keyOffsets[other], section.keyLengths[other], section.keyOffsets[i], section.keyLengths[i])) {
+                        section.types[other] = section.types[i];
+                        section.payloads[other] = section.payloads[i];
+                        section.types[i] = 0;
+                        break;
+                    }
+                    slot = (slot + 1) & (tableSize - 1);
+                }
+            }
+            tableSize = tableSize(unique);
+            int offset = reserve(SECTION_HEADER + (long) unique * ENTRY_SIZE + (long) tableSize * 4);
+            nodes.putInt(offset, unique);
+            nodes.putInt(offset + 4, tableSize);
+            int tableOffset = offset + SECTION_HEADER + unique * ENTRY_SIZE;
+            int index = 0;
+            for (int i = 0; i < section.count; i++) {
+                if (section.types[i] == 0) {
+                    continue;
+                }
+                int entryOffset = offset + SECTION_HEADER + index * ENTRY_SIZE;
+                nodes.putInt(entryOffset, section.keyOffsets[i]);
+                nodes.putInt(entryOffset + 4, section.keyLengths[i]);
+                nodes.putInt(entryOffset + 8, section.hashes[i]);
+                nodes.putInt(entryOffset + 12, section.types[i]);
+                nodes.putLong(entryOffset + 16, section.payloads[i]);
+                int slot = section.hashes[i] & (tableSize - 1);
+                while (nodes.getInt(tableOffset + slot * 4) != 0) {
+                    slot = (slot + 1) & (tableSize - 1);
+                }
+                nodes.putInt(tableOffset + slot * 4, index + 1);
+                index++;
+            }
+            return offset;
+        }
+
+        /**
+         * Writes the finished list and returns its offset.
+         */
+        int list() {
+            int offset = reserve(LIST_HEADER + (long) list.count * ITEM_SIZE);
+            nodes.putInt(offset, list.count);
+            for (int i = 0; i < list.count; i++) {
+                nodes.putInt(offset + LIST_HEADER + i * ITEM_SIZE, list.types[i]);
+                nodes.putLong(offset + LIST_HEADER + i * ITEM_SIZE + 4, list.payloads[i]);
+            }
+            return offset;
+        }
+
+        boolean sameKey(int offsetA, int lengthA, int offsetB, int lengthB) {
+            if (lengthA != lengthB) {
+                return false;
+            }
+            for (int i = 0; i < lengthA; i++) {
+                if (strings.get(offsetA + i) != strings.get(offsetB + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Moves the used part of a buffer into a new one with room for at least the needed size, freeing the old one.
+         */
+        ByteBuffer grow(ByteBuffer buffer, int used, int needed) {
+            int size = (int) Math.min(Integer.MAX_VALUE, Math.max((long) needed, buffer.capacity() * 2L));
+            ByteBuffer output = ByteBuffer.allocateDirect(size);
+            ByteBuffer source = buffer.duplicate();
+            source.limit(used).position(0);
+            output.put(source);
+            free(buffer);
+            return output;
+        }
+
+        /**
+         * Copies the used part of a buffer into one of exactly that size.
+         */
+        ByteBuffer trim(ByteBuffer buffer, int used) {
+            ByteBuffer output = ByteBuffer.allocateDirect(used);
+            ByteBuffer source = buffer.duplicate();
+            source.limit(used).position(0);
+            output.put(source);
+            return output;
+        }
+    }
+}
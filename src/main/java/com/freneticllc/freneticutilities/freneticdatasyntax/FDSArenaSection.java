@@ -0,0 +1,384 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A read-only view of a section stored in an FDSArena.
+ * Views are lightweight: they hold only a reference to the arena and a position within it.
+ * Values are decoded from off-heap memory on each call, while holding a shared lock on the arena.
+ */
+public class FDSArenaSection {
+
+    FDSArenaSection(FDSArena arena, int offset) {
+        this.arena = arena;
+        this.offset = offset;
+    }
+
+    /**
+     * The arena this view reads from.
+     */
+    public final FDSArena arena;
+
+    /**
+     * The position of this section within the arena.
+     */
+    private final int offset;
+
+    /**
+     * Returns the keys at the root of this section, in their original order.
+     * @return All keys.
+     */
+    public List<String> getRootKeys() {
+        long stamp = arena.startRead();
+        try {
+            ByteBuffer nodes = arena.nodes;
+            int count = nodes.getInt(offset);
+            List<String> keys = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int entry = offset + FDSArena.SECTION_HEADER + i * FDSArena.ENTRY_SIZE;
+                keys.add(arena.readString(nodes.getInt(entry), nodes.getInt(entry + 4)));
+            }
+            return keys;
+        }
+        finally {
+            arena.endRead(stamp);
+        }
+    }
+
+    /**
+     * Checks if a key exists in the section.
+     * @param key The key to check for.
+     * @return Whether the key is present.
+     */
+    public boolean hasKey(String key) {
+        long stamp = arena.startRead();
+        try {
+            return findEntry(key, false) >= 0;
+        }
+        finally {
+            arena.endRead(stamp);
+        }
+    }
+
+    /**
+     * Gets a sub-section of this section.
+     * Returns null if not found.
+     * @param key The key of the section.
+     * @return The subsection.
+     */
+    public FDSArenaSection getSection(String key) {
+        long stamp = arena.startRead();
+        try {
+            return sectionAt(findEntry(key, false));
+        }
+        finally {
+            arena.endRead(stamp);
+        }
+    }
+
+    /**
+     * Gets a sub-section of this section, ignoring case.
+     * Returns null if not found.
+     * @param key The key of the section.
+     * @return The subsection.
+     */
+    public FDSArenaSection getSectionLowered(String key) {
+        long stamp = arena.startRead();
+        try {
+            return sectionAt(findEntry(key, true));
+        }
+        finally {
+            arena.endRead(stamp);
+        }
+    }
+
+    /**
+     * Gets an object from the section.
+     * Sections are returned as FDSArenaSection views, lists as a List of values, and binary data as a byte array.
+     * Returns null if not found.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public Object getObject(String key) {
+        long stamp = arena.startRead();
+        try {
+            return objectAt(findEntry(key, false));
+        }
+        finally {
+            arena.endRead(stamp);
+        }
+    }
+
+    /**
+     * Gets the stored value of an entry. Must be called within a read.
+     */
+    private Object objectAt(int entry) {
+        if (entry < 0) {
+            return null;
+        }
+        ByteBuffer nodes = arena.nodes;
+        int type = nodes.getInt(entry + 12);
+        long payload = nodes.getLong(entry + 16);
+        if (type == FDSArena.TYPE_SECTION) {
+            return new FDSArenaSection(arena, (int) payload);
+        }
+        if (type == FDSArena.TYPE_LIST) {
+            int list = (int) payload;
+            int count = nodes.getInt(list);
+            List<Object> output = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int item = list + FDSArena.LIST_HEADER + i * FDSArena.ITEM_SIZE;
+                output.add(scalar(nodes.getInt(item), nodes.getLong(item + 4)));
+            }
+            return output;
+        }
+        return scalar(type, payload);
+    }
+
+    /**
+     * Gets a String from the section. Can Stringify non-String values.
+     * Returns null if not found.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public String getString(String key) {
+        Object o = getObject(key);
+        return o == null ? null : o.toString();
+    }
+
+    /**
+     * Gets a list of Strings from the section. Can Stringify non-String values.
+     * A single non-list value is returned as a one-entry list.
+     * Returns null if not found.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public List<String> getStringList(String key) {
+        Object o = getObject(key);
+        if (o == null) {
+            return null;
+        }
+        List<String> output = new ArrayList<>();
+        if (o instanceof List) {
+            for (Object item : (List<?>) o) {
+                output.add(item.toString());
+            }
+        }
+        else {
+            output.add(o.toString());
+        }
+        return output;
+    }
+
+    /**
+     * Gets an optional long from the section.
+     * Returns null if not found or not a number.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public Long getLong(String key) {
+        Object o;
+        long stamp = arena.startRead();
+        try {
+            int entry = findEntry(key, false);
+            if (entry < 0) {
+                return null;
+            }
+            if (arena.nodes.getInt(entry + 12) == FDSArena.TYPE_LONG) {
+                return arena.nodes.getLong(entry + 16);
+            }
+            o = objectAt(entry);
+        }
+        finally {
+            arena.endRead(stamp);
+        }
+        try {
+            return Long.parseLong(o.toString());
+        }
+        catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets an optional int from the section.
+     * Returns null if not found or not a number.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public Integer getInt(String key) {
+        Long asLong = getLong(key);
+        return asLong == null ? null : asLong.intValue();
+    }
+
+    /**
+     * Gets an optional double from the section.
+     * Returns null if not found or not a number.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public Double getDouble(String key) {
+        Object o;
+        long stamp = arena.startRead();
+        try {
+            int entry = findEntry(key, false);
+            if (entry < 0) {
+                return null;
+            }
+            ByteBuffer nodes = arena.nodes;
+            int type = nodes.getInt(entry + 12);
+            if (type == FDSArena.TYPE_DOUBLE) {
+                return Double.longBitsToDouble(nodes.getLong(entry + 16));
+            }
+            if (type == FDSArena.TYPE_LONG) {
+                return (double) nodes.getLong(entry + 16);
+            }
+            o = objectAt(entry);
+        }
+        finally {
+            arena.endRead(stamp);
+        }
+        try {
+            return Double.parseDouble(o.toString());
+        }
+        catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets a boolean from the section.
+     * Returns null if not found.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public Boolean getBoolean(String key) {
+        Object o = getObject(key);
+        if (o == null) {
+            return null;
+        }
+        if (o instanceof Boolean) {
+            return (Boolean) o;
+        }
+        return FDSUtility.toLowerCase(o.toString()).equals("true");
+    }
+
+    /**
+     * Gets a binary value from the section.
+     * Returns null if not found or not binary.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public byte[] getBinary(String key) {
+        Object o = getObject(key);
+        return o instanceof byte[] ? (byte[]) o : null;
+    }
+
+    /**
+     * Gets a view of the section an entry holds, or null if it is not a section. Must be called within a read.
+     */
+    private FDSArenaSection sectionAt(int entry) {
+        if (entry < 0 || arena.nodes.getInt(entry + 12) != FDSArena.TYPE_SECTION) {
+            return null;
+        }
+        return new FDSArenaSection(arena, (int) arena.nodes.getLong(entry + 16));
+    }
+
+    private Object scalar(int type, long payload) {
+        switch (type) {
+            case FDSArena.TYPE_LONG:
+                return payload;
+            case FDSArena.TYPE_DOUBLE:
+                return Double.longBitsToDouble(payload);
+            case FDSArena.TYPE_BOOLEAN:
+                return payload != 0;
+            case FDSArena.TYPE_BINARY:
+                return arena.readBytes((int) (payload >>> 32), (int) payload);
+            default:
+                return arena.readString((int) (payload >>> 32), (int) payload);
+        }
+    }
+
+    /**
+     * Finds the entry for a full path, returning its position in the arena or -1 if not found. Must be called within a read.
+     */
+    private int findEntry(String key, boolean lowered) {
+        ByteBuffer nodes = arena.nodes;
+        char split = arena.sectionPathSplit;
+        int section = offset;
+        int start = 0;
+        while (true) {
+            int end = key.indexOf(split, start);
+            String part = end < 0 ? key.substring(start) : key.substring(start, end);
+            int entry = findRootEntry(nodes, section, part, lowered);
+            if (end < 0 || entry < 0) {
+                return entry;
+            }
+            if (nodes.getInt(entry + 12) != FDSArena.TYPE_SECTION) {
+                return -1;
+            }
+            section = (int) nodes.getLong(entry + 16);
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Finds an entry directly within a section, returning its position in the arena or -1 if not found.
+     * For lowercase lookups, the last matching entry wins (as with "FDSSection.getRootDataLowered").
+     */
+    private int findRootEntry(ByteBuffer nodes, int section, String key, boolean lowered) {
+        int tableSize = nodes.getInt(section + 4);
+        if (tableSize == 0) {
+            return -1;
+        }
+        int count = nodes.getInt(section);
+        int tableOffset = section + FDSArena.SECTION_HEADER + count * FDSArena.ENTRY_SIZE;
+        String loweredKey = FDSUtility.toLowerCase(key);
+        int hash = FDSArena.keyHash(loweredKey);
+        byte[] target = (lowered ? loweredKey : key).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer strings = arena.strings;
+        int found = -1;
+        int slot = hash & (tableSize - 1);
+        while (true) {
+            int index = nodes.getInt(tableOffset + slot * 4) - 1;
+            if (index < 0) {
+                return found;
+            }
+            int entry = section + FDSArena.SECTION_HEADER + index * FDSArena.ENTRY_SIZE;
+            if (nodes.getInt(entry + 8) == hash && keyEquals(strings, nodes.getInt(entry), nodes.getInt(entry + 4), target, lowered)) {
+                if (!lowered) {
+                    return entry;
+                }
+                if (entry > found) {
+                    found = entry;
+                }
+            }
+            slot = (slot + 1) & (tableSize - 1);
+        }
+    }
+
+    private static boolean keyEquals(ByteBuffer strings, int offset, int length, byte[] target, boolean lowered) {
+        if (length != target.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            byte b = strings.get(offset + i);
+            if (lowered && b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != target[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,147 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Non-blocking file reads and writes for FDS sections, backing "FDSSection.loadAsync" and "FDSSection.saveAsync".
+ */
+class FDSAsyncFiles {
+
+    /**
+     * Reads a whole file without blocking the calling thread.
+     * @param path The file to read.
+     * @return A future of the file's bytes.
+     */
+    static CompletableFuture<ByteBuffer> read(Path path) {
+        CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+        AsynchronousFileChannel channel;
+        ByteBuffer buffer;
+        try {
+            channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                channel.close();
+                throw new IOException("File too large to load: " + path);
+            }
+            buffer = ByteBuffer.allocate((int) size);
+        }
+        catch (IOException ex) {
+            future.completeExceptionally(ex);
+            return future;
+        }
+        channel.read(buffer, 0, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer count, Void attachment) {
+                if (count >= 0 && buffer.hasRemaining()) {
+                    channel.read(buffer, buffer.position(), null, this);
+                    return;
+                }
+                close(channel, future);
+                buffer.flip();
+                future.complete(buffer);
+            }
+
+            @Override
+            public void failed(Throwable ex, Void attachment) {
+                close(channel, future);
+                future.completeExceptionally(ex);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Writes a whole file (replacing any existing content) without blocking the calling thread.
+     * @param path The file to write.
+     * @param data The data to write.
+     * @return A future that completes once the data is written.
+     */
+    static CompletableFuture<Void> write(Path path, ByteBuffer data) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        AsynchronousFileChannel channel;
+        try {
+            channel = AsynchronousFileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        catch (IOException ex) {
+            future.completeExceptionally(ex);
+            return future;
+        }
+        channel.write(data, 0, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer count, Void attachment) {
+                if (data.hasRemaining()) {
+                    channel.write(data, data.position(), null, this);
+                    return;
+                }
+                close(channel, future);
+                future.complete(null);
+            }
+
+            @Override
+            public void failed(Throwable ex, Void attachment) {
+                close(channel, future);
+                future.completeExceptionally(ex);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Loads a section from a file without blocking the calling thread.
+     * @param path The file to load.
+     * @param executor The executor to parse on, or null to parse on the thread that completes the read.
+     * @return A future of the section.
+     */
+    static CompletableFuture<FDSSection> load(Path path, Executor executor) {
+        CompletableFuture<ByteBuffer> read = read(path);
+        if (executor == null) {
+            return read.thenApply(FDSAsyncFiles::parse);
+        }
+        return read.thenApplyAsync(FDSAsyncFiles::parse, executor);
+    }
+
+    /**
+     * Saves a section to a file without blocking the calling thread on the write.
+     * @param section The section to save.
+     * @param path The file to save to.
+     * @param executor The executor to serialize on, or null to serialize on the calling thread.
+     * @return A future that completes once the file is written.
+     */
+    static CompletableFuture<Void> save(FDSSection section, Path path, Executor executor) {
+        if (executor == null) {
+            return write(path, serialize(section));
+        }
+        return CompletableFuture.supplyAsync(() -> serialize(section), executor).thenCompose(data -> write(path, data));
+    }
+
+    private static FDSSection parse(ByteBuffer data) {
+        return new FDSSection(StandardCharsets.UTF_8.decode(data).toString());
+    }
+
+    private static ByteBuffer serialize(FDSSection section) {
+        return StandardCharsets.UTF_8.encode(section.savetoString());
+    }
+
+    private static void close(AsynchronousFileChannel channel, CompletableFuture<?> future) {
+        try {
+            channel.close();
+        }
+        catch (IOException ex) {
+            future.completeExceptionally(ex);
+        }
+    }
+}
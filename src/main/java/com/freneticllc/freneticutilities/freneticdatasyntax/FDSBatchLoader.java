@@ -0,0 +1,181 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Loads many FDS files at once, reading and parsing them in parallel.
+ * A failure in one file is recorded in the result, and does not stop the other files loading.
+ */
+public class FDSBatchLoader {
+
+    /**
+     * The result of loading a batch of files.
+     */
+    public static class Result {
+
+        /**
+         * Every file that loaded, in the order given, mapped to its section.
+         */
+        public final Map<Path, FDSSection> sections = new LinkedHashMap<>();
+
+        /**
+         * Files that loaded with errors (in lenient mode), mapped to their errors. Their partial sections are in "sections".
+         */
+        public final Map<Path, List<FDSParseError>> parseErrors = new LinkedHashMap<>();
+
+        /**
+         * Files that could not be loaded at all, mapped to the reason.
+         */
+        public final Map<Path, Exception> failures = new LinkedHashMap<>();
+
+        /**
+         * Returns whether every file loaded without any error.
+         * @return Whether the batch was clean.
+         */
+        public boolean isValid() {
+            return parseErrors.isEmpty() && failures.isEmpty();
+        }
+
+        /**
+         * Merges all loaded sections into one root section, with each file as a sub-section named by its file name up to the first path splitter.
+         * With the default splitter, this is the name without any extensions, so both "site.fds" and "site.prod.fds" become "site"
+         * (a key holding the splitter could never be found by path). Leading splitters are skipped, so ".local.fds" becomes "local".
+         * May throw an FDSInputException if two files share a name (such as files of the same name from different directories).
+         * @return The merged root section.
+         */
+        public FDSSection merge() {
+            FDSSection root = new FDSSection();
+            Map<String, Path> names = new HashMap<>();
+            for (Map.Entry<Path, FDSSection> entry : sections.entrySet()) {
+                String name = entry.getKey().getFileName().toString();
+                int start = 0;
+                while (start < name.length() - 1 && name.charAt(start) == root.sectionPathSplit) {
+                    start++;
+                }
+                int end = name.indexOf(root.sectionPathSplit, start);
+                name = name.substring(start, end < 0 ? name.length() : end);
+                Path previous = names.put(name, entry.getKey());
+                if (previous != null) {
+                    throw new FDSInputException("Cannot merge files '" + previous + "' and '" + entry.getKey() + "': both are named '" + name + "'");
+                }
+                root.setRootData(name, new FDSData(entry.getValue(), new ArrayList<>()));
+            }
+            return root;
+        }
+    }
+
+    /**
+     * The executor to read and parse files on.
+     * Defaults to the common fork-join pool. Any executor may be used, such as one that runs each task on a new virtual thread.
+     */
+    public Executor executor = ForkJoinPool.commonPool();
+
+    /**
+     * The options to parse every file with.
+     * If these options have no key intern table, each batch gets its own fresh one (see "internKeys"),
+     * which is shared by the files of that batch and dropped after it.
+     */
+    public FDSParseOptions options = new FDSParseOptions();
+
+    /**
+     * Whether to share equal keys between the files of each batch, when "options" has no key intern table of its own.
+     */
+    public boolean internKeys = true;
+
+    /**
+     * The character set files are encoded in.
+     */
+    public Charset charset = StandardCharsets.UTF_8;
+
+    /**
+     * Loads every file in a directory (not including sub-directories) with the ".fds" extension.
+     * @param directory The directory to load.
+     * @return The batch result.
+     * @throws IOException If the directory cannot be listed.
+     */
+    public Result loadDirectory(Path directory) throws IOException {
+        return loadDirectory(directory, "*.fds");
+    }
+
+    /**
+     * Loads every file in a directory (not including sub-directories) that matches a glob pattern.
+     * @param directory The directory to load.
+     * @param glob The file name pattern, such as "*.fds".
+     * @return The batch result.
+     * @throws IOException If the directory cannot be listed.
+     */
+    public Result loadDirectory(Path directory, String glob) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path)) {
+                    paths.add(path);
+                }
+            }
+        }
+        Collections.sort(paths);
+        return load(paths);
+    }
+
+    /**
+     * Loads a set of files in parallel, waiting for all of them to finish.
+     * @param paths The files to load.
+     * @return The batch result.
+     */
+    public Result load(Collection<Path> paths) {
+        List<Path> order = new ArrayList<>(paths);
+        List<CompletableFuture<FDSParseResult>> futures = new ArrayList<>(order.size());
+        FDSParseOptions parseOptions = options;
+        if (internKeys && parseOptions.keyInternTable == null) {
+            parseOptions = parseOptions.copy();
+            parseOptions.keyInternTable = new ConcurrentHashMap<>();
+        }
+        FDSParseOptions batchOptions = parseOptions;
+        Charset fileCharset = charset;
+        for (Path path : order) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return FDSSection.parse(new String(Files.readAllBytes(path), fileCharset), batchOptions);
+                }
+                catch (IOException ex) {
+                    throw new CompletionException(ex);
+                }
+            }, executor));
+        }
+        Result result = new Result();
+        for (int i = 0; i < order.size(); i++) {
+            Path path = order.get(i);
+            FDSParseResult parsed;
+            try {
+                parsed = futures.get(i).join();
+            }
+            catch (CompletionException ex) {
+                Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+                result.failures.put(path, cause instanceof Exception ? (Exception) cause : ex);
+                continue;
+            }
+            result.sections.put(path, parsed.section);
+            if (!parsed.isValid()) {
+                result.parseErrors.put(path, parsed.errors);
+            }
+        }
+        return result;
+    }
+}
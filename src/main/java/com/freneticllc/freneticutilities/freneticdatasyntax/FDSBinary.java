@@ -0,0 +1,287 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Represents a binary value within an FDS section.
+ * Values loaded with "FDSParseOptions.lazyBinary" (or read by an FDSReader) are kept as their undecoded Base64 source text, and only decoded when accessed.
+ * Decoded data is not cached, so that a value never holds both its encoded and decoded forms.
+ */
+public class FDSBinary {
+
+    /**
+     * How many bytes to encode at a time when writing decoded data as Base64.
+     * Must be a multiple of 3 to avoid padding in the middle of the output.
+     */
+    private static final int ENCODE_CHUNK = 3 * 1024;
+
+    /**
+     * Constructs the binary value from decoded data.
+     * @param data The decoded data.
+     */
+    public FDSBinary(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Constructs the binary value from a slice of Base64 source text, which must already be valid.
+     * @param source The text holding the Base64 data.
+     * @param start The index of the first Base64 character.
+     * @param end The index after the last Base64 character.
+     */
+    public FDSBinary(String source, int start, int end) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * The decoded data, if constructed from decoded data.
+     */
+    private byte[] data;
+
+    /**
+     * The Base64 source text, if constructed from text.
+     */
+    private String source;
+
+    /**
+     * The slice bounds within the source text.
+     */
+    private int start, end;
+
+    /**
+     * Returns whether this value holds decoded data (rather than undecoded source text).
+     * @return Whether this is decoded.
+     */
+    public boolean isDecoded() {
+        return data != null;
+    }
+
+    /**
+     * Gets the length of the decoded data, without decoding it.
+     * @return The length in bytes.
+     */
+    public int length() {
+        if (data != null) {
+            return data.length;
+        }
+        int chars = end - start;
+        int padding = 0;
+        if (chars > 0 && source.charAt(end - 1) == '=') {
+            padding++;
+            if (chars > 1 && source.charAt(end - 2) == '=') {
+                padding++;
+            }
+        }
+        return (chars / 4) * 3 + (chars % 4 == 0 ? 0 : (chars % 4) - 1) - padding;
+    }
+
+    /**
+     * Gets the decoded data.
+     * For values loaded from text, this decodes freshly on each call.
+     * @return The decoded data.
+     */
+    public byte[] getBytes() {
+        if (data != null) {
+            return data;
+        }
+        byte[] output = new byte[length()];
+        try (InputStream stream = openStream()) {
+            int read = 0;
+            while (read < output.length) {
+                int count = stream.read(output, read, output.length - read);
+                if (count < 0) {
+                    break;
+                }
+                read += count;
+            }
+        }
+        catch (IOException ex) {
+            throw new IllegalStateException("Invalid binary data", ex);
+        }
+        return output;
+    }
+
+    /**
+     * Gets the decoded data as a read-only buffer.
+     * @return The decoded data.
+     */
+    public ByteBuffer getByteBuffer() {
+        return ByteBuffer.wrap(getBytes()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Opens a stream that decodes the data as it is read.
+     * @return The stream.
+     */
+    public InputStream openStream() {
+        if (data != null) {
+            return new ByteArrayInputStream(data);
+        }
+        return Base64.getDecoder().wrap(new SliceInputStream(source, start, end));
+    }
+
+    /**
+     * Writes the Base64 encoded form of this value to an output, without building the full encoded text first.
+     * @param output The output to write to.
+     * @throws IOException If the output fails.
+     */
+    public void appendEncoded(Appendable output) throws IOException {
+        if (data == null) {
+            output.append(source, start, end);
+            for (int padding = (end - start) % 4; padding != 0 && padding < 4; padding++) {
+                output.append('=');
+            }
+            return;
+        }
+        appendEncoded(data, output);
+    }
+
+    /**
+     * Writes the Base64 encoded form of some data to an output, a chunk at a time.
+     * @param data The data to encode.
+     * @param output The output to write to.
+     * @throws IOException If the output fails.
+     */
+    public static void appendEncoded(byte[] data, Appendable output) throws IOException {
+        Base64.Encoder encoder = Base64.getEncoder();
+        byte[] chunk = new byte[Math.min(ENCODE_CHUNK, data.length)];
+        byte[] encoded = new byte[(chunk.length + 2) / 3 * 4];
+        char[] chars = new char[encoded.length];
+        for (int position = 0; position < data.length; position += ENCODE_CHUNK) {
+            int count = Math.min(ENCODE_CHUNK, data.length - position);
+            if (count != chunk.length) {
+                chunk = new byte[count];
+            }
+            System.arraycopy(data, position, chunk, 0, count);
+            int length = encoder.encode(chunk, encoded);
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) encoded[i];
+            }
+            if (output instanceof StringBuilder) {
+                ((StringBuilder) output).append(chars, 0, length);
+            }
+            else {
+                output.append(CharBuffer.wrap(chars, 0, length));
+            }
+        }
+    }
+
+    /**
+     * Checks whether a slice of text is valid Base64 data, without decoding it.
+     * @param source The text.
+     * @param start The index of the first character.
+     * @param end The index after the last character.
+     * @return Whether it is valid.
+     */
+    public static boolean isValidBase64(String source, int start, int end) {
+        int length = end - start;
+        if (length % 4 == 1) {
+            return false;
+        }
+        int padding = 0;
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c == '=') {
+                padding++;
+                continue;
+            }
+            if (padding > 0) {
+                return false;
+            }
+            if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/')) {
+                return false;
+            }
+        }
+        return padding == 0 || (padding <= 2 && length % 4 == 0);
+    }
+
+    /**
+     * Returns whether another object is binary data with the same decoded bytes.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof FDSBinary)) {
+            return false;
+        }
+        FDSBinary binary = (FDSBinary) other;
+        return length() == binary.length() && Arrays.equals(getBytes(), binary.getBytes());
+    }
+
+    /**
+     * Returns a hash code of the decoded bytes.
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(getBytes());
+    }
+
+    /**
+     * Returns the Base64 encoded form of this value (always padded).
+     */
+    @Override
+    public String toString() {
+        if (data == null) {
+            StringBuilder output = new StringBuilder(end - start + 2);
+            try {
+                appendEncoded(output);
+            }
+            catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            return output.toString();
+        }
+        return Base64.getEncoder().encodeToString(data);
+    }
+
+    /**
+     * Reads the characters of a text slice as bytes.
+     */
+    private static class SliceInputStream extends InputStream {
+
+        SliceInputStream(String source, int start, int end) {
+            this.source = source;
+            this.position = start;
+            this.end = end;
+        }
+
+        final String source;
+
+        int position;
+
+        final int end;
+
+        @Override
+        public int read() {
+            return position < end ? source.charAt(position++) : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position >= end) {
+                return -1;
+            }
+            int count = Math.min(length, end - position);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) source.charAt(position++);
+            }
+            return count;
+        }
+    }
+}
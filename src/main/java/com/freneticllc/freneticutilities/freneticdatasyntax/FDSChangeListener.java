@@ -0,0 +1,21 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+/**
+ * Receives changes to data in an FDS section, as registered with "FDSSection.subscribe".
+ */
+public interface FDSChangeListener {
+
+    /**
+     * Called when data at a matching path is set, replaced, or removed (by replacing a section above it).
+     * @param path The full path of the changed data, relative to the subscribed section.
+     * @param oldData The previous data, or null if there was none.
+     * @param newData The new data, or null if it was removed.
+     */
+    void changed(String path, FDSData oldData, FDSData newData);
+}
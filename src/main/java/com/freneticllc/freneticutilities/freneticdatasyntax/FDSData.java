@@ -71,9 +71,26 @@ public class FDSData {
             }
             return outputBuilder.toString();
         }
+        if (internal instanceof long[]) {
+            StringBuilder outputBuilder = new StringBuilder();
+            for (long value : (long[]) internal) {
+                outputBuilder.append(value).append('|');
+            }
+            return outputBuilder.toString();
+        }
+        if (internal instanceof double[]) {
+            StringBuilder outputBuilder = new StringBuilder();
+            for (double value : (double[]) internal) {
+                outputBuilder.append(value).append('|');
+            }
+            return outputBuilder.toString();
+        }
         if (internal instanceof byte[]) {
             return Base64.getEncoder().encodeToString((byte[]) internal);
         }
+        if (internal instanceof FDSBinary) {
+            return internal.toString();
+        }
         if (internal instanceof Boolean) {
             return ((Boolean) internal) ? "true" : "false";
         }
@@ -0,0 +1,68 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives a stream of FDS events (as produced by an FDSReader) and writes them out, without building an FDSSection tree.
+ */
+public interface FDSEventWriter {
+
+    /**
+     * Starts a section.
+     * @param key The section key.
+     * @param comments The comments preceding the section.
+     * @throws IOException If the output fails.
+     */
+    void startSection(String key, List<String> comments) throws IOException;
+
+    /**
+     * Ends the most recently started section.
+     * @throws IOException If the output fails.
+     */
+    void endSection() throws IOException;
+
+    /**
+     * Writes a single value.
+     * @param key The value key.
+     * @param value The value: a String, number, Boolean, FDSBinary, or byte array.
+     * @param comments The comments preceding the value.
+     * @throws IOException If the output fails.
+     */
+    void value(String key, Object value, List<String> comments) throws IOException;
+
+    /**
+     * Starts a list.
+     * @param key The list key.
+     * @param comments The comments preceding the list.
+     * @throws IOException If the output fails.
+     */
+    void startList(String key, List<String> comments) throws IOException;
+
+    /**
+     * Writes a single list entry.
+     * @param value The value: a String, number, Boolean, FDSBinary, or byte array.
+     * @param comments The comments preceding the entry.
+     * @throws IOException If the output fails.
+     */
+    void listItem(Object value, List<String> comments) throws IOException;
+
+    /**
+     * Ends the open list.
+     * @throws IOException If the output fails.
+     */
+    void endList() throws IOException;
+
+    /**
+     * Ends the output.
+     * @param comments The trailing comments.
+     * @throws IOException If the output fails.
+     */
+    void end(List<String> comments) throws IOException;
+}
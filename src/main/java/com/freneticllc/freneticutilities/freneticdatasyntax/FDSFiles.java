@@ -0,0 +1,129 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Durable file writes for FDS sections, backing "FDSSection.save" and "FDSPersistentStore".
+ */
+class FDSFiles {
+
+    /**
+     * Produces the text of a file.
+     */
+    interface Content {
+
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    /**
+     * Writes a file according to the save options.
+     * An atomic save through a symbolic link replaces the file the link points to, keeping the link.
+     * @param path The file to write.
+     * @param options The save options.
+     * @param content The content to write.
+     * @throws IOException If the file cannot be written.
+     */
+    static void save(Path path, FDSSaveOptions options, Content content) throws IOException {
+        path = path.toAbsolutePath();
+        if (!options.atomic) {
+            write(path, options, content);
+            return;
+        }
+        try {
+            // Replace the file a symbolic link points to, rather than the link itself.
+            path = path.toRealPath();
+        }
+        catch (NoSuchFileException ex) {
+            // A new file, written where asked.
+        }
+        Path directory = path.getParent();
+        Path temp = createTemp(directory, path.getFileName().toString());
+        try {
+            copyPermissions(path, temp);
+            write(temp, options, content);
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(temp);
+            throw ex;
+        }
+        if (options.fsync) {
+            syncDirectory(directory);
+        }
+    }
+
+    /**
+     * Creates an empty temporary file next to the target.
+     * Unlike "Files.createTempFile", this gives the file the normal default permissions rather than owner-only ones.
+     */
+    private static Path createTemp(Path directory, String name) throws IOException {
+        while (true) {
+            Path temp = directory.resolve("." + name + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                return Files.createFile(temp);
+            }
+            catch (FileAlreadyExistsException ex) {
+                // Try another name.
+            }
+        }
+    }
+
+    /**
+     * Gives the temporary file the same POSIX permissions as the file it will replace, if that file exists.
+     * Does nothing on file systems without POSIX permissions.
+     */
+    private static void copyPermissions(Path path, Path temp) throws IOException {
+        try {
+            Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(path));
+        }
+        catch (NoSuchFileException | UnsupportedOperationException ex) {
+            // Ignore, there is nothing to copy.
+        }
+    }
+
+    private static void write(Path path, FDSSaveOptions options, Content content) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = new BufferedWriter(Channels.newWriter(channel, options.charset.newEncoder(), -1), options.bufferSize);
+            content.writeTo(writer);
+            writer.flush();
+            if (options.fsync) {
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * Forces a directory's entries (such as a rename) to disk, where the platform allows it.
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+        catch (IOException ex) {
+            // Ignore, some platforms (such as Windows) can't open or sync a directory.
+        }
+    }
+}
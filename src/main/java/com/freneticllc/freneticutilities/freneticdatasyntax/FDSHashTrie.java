@@ -0,0 +1,253 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable hash array mapped trie from String keys to values, backing "FDSVersionedSection".
+ * Each "put" returns a new trie that shares every untouched node with the old one, copying only the path to the changed key.
+ * @param <V> The type of value.
+ */
+final class FDSHashTrie<V> {
+
+    private static final FDSHashTrie<?> EMPTY = new FDSHashTrie<>(new BitmapNode(0, new Object[0]), 0);
+
+    /**
+     * Gets the empty trie.
+     * @param <V> The type of value.
+     * @return The empty trie.
+     */
+    @SuppressWarnings("unchecked")
+    static <V> FDSHashTrie<V> empty() {
+        return (FDSHashTrie<V>) EMPTY;
+    }
+
+    private FDSHashTrie(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * The root node (a BitmapNode or CollisionNode).
+     */
+    private final Object root;
+
+    /**
+     * How many keys are in the trie.
+     */
+    final int size;
+
+    /**
+     * A single key and value.
+     */
+    private static final class Leaf {
+
+        Leaf(int hash, String key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        final int hash;
+
+        final String key;
+
+        final Object value;
+    }
+
+    /**
+     * A node with up to 32 children, each a Leaf or a node, present where the bitmap has a bit set.
+     */
+    private static final class BitmapNode {
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        final int bitmap;
+
+        final Object[] slots;
+    }
+
+    /**
+     * A node holding several leaves with exactly the same hash.
+     */
+    private static final class CollisionNode {
+
+        CollisionNode(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        final int hash;
+
+        final Leaf[] leaves;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Gets the value for a key.
+     * @param key The key.
+     * @return The value, or null if not present.
+     */
+    @SuppressWarnings("unchecked")
+    V get(String key) {
+        int hash = hash(key);
+        Object node = root;
+        int shift = 0;
+        while (true) {
+            if (node instanceof CollisionNode) {
+                CollisionNode collision = (CollisionNode) node;
+                if (collision.hash != hash) {
+                    return null;
+                }
+                for (Leaf leaf : collision.leaves) {
+                    if (leaf.key.equals(key)) {
+                        return (V) leaf.value;
+                    }
+                }
+                return null;
+            }
+            BitmapNode bitmapNode = (BitmapNode) node;
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmapNode.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = bitmapNode.slots[Integer.bitCount(bitmapNode.bitmap & (bit - 1))];
+            if (slot instanceof Leaf) {
+                Leaf leaf = (Leaf) slot;
+                return leaf.hash == hash && leaf.key.equals(key) ? (V) leaf.value : null;
+            }
+            node = slot;
+            shift += 5;
+        }
+    }
+
+    /**
+     * Returns a trie with a key set to a value.
+     * @param key The key.
+     * @param value The value.
+     * @return The new trie (or this trie, if the key already had exactly that value).
+     */
+    FDSHashTrie<V> put(String key, V value) {
+        boolean[] added = new boolean[1];
+        Object newRoot = put(root, 0, new Leaf(hash(key), key, value), added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new FDSHashTrie<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    private static Object put(Object node, int shift, Leaf leaf, boolean[] added) {
+        if (node instanceof CollisionNode) {
+            CollisionNode collision = (CollisionNode) node;
+            if (collision.hash != leaf.hash) {
+                BitmapNode wrapper = new BitmapNode(1 << ((collision.hash >>> shift) & 31), new Object[] { collision });
+                return put(wrapper, shift, leaf, added);
+            }
+            Leaf[] leaves = collision.leaves;
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(leaf.key)) {
+                    if (leaves[i].value == leaf.value) {
+                        return node;
+                    }
+                    Leaf[] copy = leaves.clone();
+                    copy[i] = leaf;
+                    return new CollisionNode(collision.hash, copy);
+                }
+            }
+            Leaf[] copy = new Leaf[leaves.length + 1];
+            System.arraycopy(leaves, 0, copy, 0, leaves.length);
+            copy[leaves.length] = leaf;
+            added[0] = true;
+            return new CollisionNode(collision.hash, copy);
+        }
+        BitmapNode bitmapNode = (BitmapNode) node;
+        int bit = 1 << ((leaf.hash >>> shift) & 31);
+        int index = Integer.bitCount(bitmapNode.bitmap & (bit - 1));
+        Object[] slots = bitmapNode.slots;
+        if ((bitmapNode.bitmap & bit) == 0) {
+            Object[] copy = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            copy[index] = leaf;
+            System.arraycopy(slots, index, copy, index + 1, slots.length - index);
+            added[0] = true;
+            return new BitmapNode(bitmapNode.bitmap | bit, copy);
+        }
+        Object slot = slots[index];
+        Object replacement;
+        if (slot instanceof Leaf) {
+            Leaf existing = (Leaf) slot;
+            if (existing.hash == leaf.hash && existing.key.equals(leaf.key)) {
+                if (existing.value == leaf.value) {
+                    return node;
+                }
+                replacement = leaf;
+            }
+            else {
+                replacement = merge(existing, leaf, shift + 5);
+                added[0] = true;
+            }
+        }
+        else {
+            replacement = put(slot, shift + 5, leaf, added);
+            if (replacement == slot) {
+                return node;
+            }
+        }
+        Object[] copy = slots.clone();
+        copy[index] = replacement;
+        return new BitmapNode(bitmapNode.bitmap, copy);
+    }
+
+    /**
+     * Builds the smallest node holding two leaves that share a slot at the level above.
+     */
+    private static Object merge(Leaf a, Leaf b, int shift) {
+        if (a.hash == b.hash) {
+            return new CollisionNode(a.hash, new Leaf[] { a, b });
+        }
+        int aIndex = (a.hash >>> shift) & 31;
+        int bIndex = (b.hash >>> shift) & 31;
+        if (aIndex == bIndex) {
+            return new BitmapNode(1 << aIndex, new Object[] { merge(a, b, shift + 5) });
+        }
+        Object[] slots = aIndex < bIndex ? new Object[] { a, b } : new Object[] { b, a };
+        return new BitmapNode((1 << aIndex) | (1 << bIndex), slots);
+    }
+
+    /**
+     * Calls an action for every key and value, in no particular order.
+     * @param action The action to call.
+     */
+    void forEach(BiConsumer<String, V> action) {
+        forEach(root, action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void forEach(Object node, BiConsumer<String, V> action) {
+        if (node instanceof Leaf) {
+            action.accept(((Leaf) node).key, (V) ((Leaf) node).value);
+        }
+        else if (node instanceof CollisionNode) {
+            for (Leaf leaf : ((CollisionNode) node).leaves) {
+                action.accept(leaf.key, (V) leaf.value);
+            }
+        }
+        else {
+            for (Object slot : ((BitmapNode) node).slots) {
+                forEach(slot, action);
+            }
+        }
+    }
+}
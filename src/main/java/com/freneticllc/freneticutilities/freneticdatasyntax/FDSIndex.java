@@ -0,0 +1,186 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * A flat index of every full path within an FDS section, for lookups that cost the same regardless of path depth.
+ * The index is a snapshot: build it once after loading, and rebuild it after changing the section's structure.
+ * (Changes within existing data objects, such as altering "FDSData.internal", are seen without rebuilding.)
+ */
+public class FDSIndex {
+
+    /**
+     * Builds an index of every path within a section.
+     * @param section The section to index.
+     */
+    public FDSIndex(FDSSection section) {
+        split = section.sectionPathSplit;
+        ArrayList<String> pathList = new ArrayList<>();
+        ArrayList<FDSData> dataList = new ArrayList<>();
+        collect(section, "", false, pathList, dataList);
+        Integer[] order = new Integer[pathList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> pathList.get(a).compareTo(pathList.get(b)));
+        paths = new String[order.length];
+        data = new FDSData[order.length];
+        for (int i = 0; i < order.length; i++) {
+            paths[i] = pathList.get(order[i]);
+            data[i] = dataList.get(order[i]);
+        }
+        table = buildTable(paths);
+        pathList.clear();
+        dataList.clear();
+        collect(section, "", true, pathList, dataList);
+        loweredPaths = pathList.toArray(new String[0]);
+        loweredData = dataList.toArray(new FDSData[0]);
+        loweredTable = buildTable(loweredPaths);
+    }
+
+    /**
+     * The path splitter of the indexed section.
+     */
+    public final char split;
+
+    /**
+     * All exact-case paths, sorted.
+     */
+    private final String[] paths;
+
+    /**
+     * The data for each exact-case path.
+     */
+    private final FDSData[] data;
+
+    /**
+     * Open-addressed hash table of (index + 1) into the exact-case paths, 0 for empty.
+     */
+    private final int[] table;
+
+    /**
+     * All lowercase paths, as resolved through each section's lowercase data.
+     */
+    private final String[] loweredPaths;
+
+    /**
+     * The data for each lowercase path.
+     */
+    private final FDSData[] loweredData;
+
+    /**
+     * Open-addressed hash table of (index + 1) into the lowercase paths, 0 for empty.
+     */
+    private final int[] loweredTable;
+
+    private void collect(FDSSection section, String prefix, boolean lowered, ArrayList<String> pathList, ArrayList<FDSData> dataList) {
+        for (Map.Entry<String, FDSData> entry : (lowered ? section.rootEntriesLowered() : section.rootEntries()).entrySet()) {
+            String path = prefix + entry.getKey();
+            pathList.add(path);
+            dataList.add(entry.getValue());
+            if (entry.getValue().internal instanceof FDSSection) {
+                collect((FDSSection) entry.getValue().internal, path + split, lowered, pathList, dataList);
+            }
+        }
+    }
+
+    private static int[] buildTable(String[] keys) {
+        int size = Integer.highestOneBit(Math.max(keys.length * 2, 2) - 1) << 1;
+        int[] output = new int[size];
+        for (int i = 0; i < keys.length; i++) {
+            int slot = mix(keys[i].hashCode()) & (size - 1);
+            while (output[slot] != 0) {
+                slot = (slot + 1) & (size - 1);
+            }
+            output[slot] = i + 1;
+        }
+        return output;
+    }
+
+    private static int find(int[] table, String[] keys, String key) {
+        int slot = mix(key.hashCode()) & (table.length - 1);
+        while (true) {
+            int index = table[slot] - 1;
+            if (index < 0) {
+                return -1;
+            }
+            if (keys[index].equals(key)) {
+                return index;
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns how many paths are indexed.
+     * @return The path count.
+     */
+    public int size() {
+        return paths.length;
+    }
+
+    /**
+     * Gets data by its full path.
+     * Returns null if not found.
+     * @param path The full path.
+     * @return The data found, or null.
+     */
+    public FDSData get(String path) {
+        int index = find(table, paths, path);
+        return index < 0 ? null : data[index];
+    }
+
+    /**
+     * Gets data by its full path, ignoring case.
+     * Returns null if not found.
+     * @param path The full path.
+     * @return The data found, or null.
+     */
+    public FDSData getLowered(String path) {
+        int index = find(loweredTable, loweredPaths, FDSUtility.toLowerCase(path));
+        return index < 0 ? null : loweredData[index];
+    }
+
+    /**
+     * Checks whether a full path is indexed.
+     * @param path The full path.
+     * @return Whether it is present.
+     */
+    public boolean hasKey(String path) {
+        return find(table, paths, path) >= 0;
+    }
+
+    /**
+     * Calls an action for a path and every path below it, in sorted path order.
+     * @param prefix The path to scan beneath, or an empty string for everything.
+     * @param action The action to call with each path and its data.
+     */
+    public void forEachWithPrefix(String prefix, BiConsumer<String, FDSData> action) {
+        int start = prefix.length() == 0 ? 0 : Arrays.binarySearch(paths, prefix);
+        if (start < 0) {
+            start = -start - 1;
+        }
+        for (int i = start; i < paths.length; i++) {
+            String path = paths[i];
+            if (!path.startsWith(prefix)) {
+                break;
+            }
+            if (prefix.length() == 0 || path.length() == prefix.length() || path.charAt(prefix.length()) == split) {
+                action.accept(path, data[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes a stream of events as JSON text.
+ * Sections become objects, lists become arrays, binary data becomes a Base64 string, and comments are dropped.
+ * Numbers that JSON cannot represent (infinities and NaN) are written as strings.
+ */
+public class FDSJsonWriter implements FDSEventWriter {
+
+    /**
+     * Constructs the writer.
+     * @param output The output to write to.
+     */
+    public FDSJsonWriter(Appendable output) {
+        this(output, "\n");
+    }
+
+    /**
+     * Constructs the writer.
+     * @param output The output to write to.
+     * @param newline What String to use as a new line.
+     */
+    public FDSJsonWriter(Appendable output, String newline) {
+        this.output = output;
+        this.newline = newline;
+    }
+
+    private final Appendable output;
+
+    private final String newline;
+
+    /**
+     * Whether each open object or array (the root object at index 0) has had any entries yet.
+     */
+    private boolean[] hasEntries = new boolean[16];
+
+    /**
+     * How many objects and arrays are open below the root object.
+     */
+    private int depth = 0;
+
+    private boolean started = false;
+
+    @Override
+    public void startSection(String key, List<String> comments) throws IOException {
+        entry();
+        writeString(key);
+        output.append(": {");
+        push();
+    }
+
+    @Override
+    public void endSection() throws IOException {
+        pop();
+        output.append('}');
+    }
+
+    @Override
+    public void value(String key, Object value, List<String> comments) throws IOException {
+        entry();
+        writeString(key);
+        output.append(": ");
+        writeValue(value);
+    }
+
+    @Override
+    public void startList(String key, List<String> comments) throws IOException {
+        entry();
+        writeString(key);
+        output.append(": [");
+        push();
+    }
+
+    @Override
+    public void listItem(Object value, List<String> comments) throws IOException {
+        entry();
+        writeValue(value);
+    }
+
+    @Override
+    public void endList() throws IOException {
+        pop();
+        output.append(']');
+    }
+
+    @Override
+    public void end(List<String> comments) throws IOException {
+        start();
+        if (hasEntries[0]) {
+            output.append(newline);
+        }
+        output.append('}').append(newline);
+    }
+
+    private void start() throws IOException {
+        if (!started) {
+            output.append('{');
+            started = true;
+        }
+    }
+
+    /**
+     * Starts a new entry in the open object or array.
+     */
+    private void entry() throws IOException {
+        start();
+        if (hasEntries[depth]) {
+            output.append(',');
+        }
+        hasEntries[depth] = true;
+        output.append(newline);
+        indent(depth + 1);
+    }
+
+    private void push() {
+        if (++depth == hasEntries.length) {
+            hasEntries = Arrays.copyOf(hasEntries, depth * 2);
+        }
+        hasEntries[depth] = false;
+    }
+
+    private void pop() throws IOException {
+        if (hasEntries[depth]) {
+            output.append(newline);
+            indent(depth);
+        }
+        depth--;
+    }
+
+    private void indent(int levels) throws IOException {
+        for (int i = 0; i < levels; i++) {
+            output.append("    ");
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            output.append("null");
+        }
+        else if (value instanceof Boolean || value instanceof Long || value instanceof Integer) {
+            output.append(value.toString());
+        }
+        else if (value instanceof Double && !((Double) value).isNaN() && !((Double) value).isInfinite()) {
+            output.append(value.toString());
+        }
+        else if (value instanceof FDSBinary) {
+            output.append('"');
+            ((FDSBinary) value).appendEncoded(output);
+            output.append('"');
+        }
+        else if (value instanceof byte[]) {
+            output.append('"');
+            FDSBinary.appendEncoded((byte[]) value, output);
+            output.append('"');
+        }
+        else {
+            writeString(value.toString());
+        }
+    }
+
+    private void writeString(String str) throws IOException {
+        output.append('"');
+        int last = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            String escaped;
+            switch (c) {
+                case '"':
+                    escaped = "\\\"";
+                    break;
+                case '\\':
+                    escaped = "\\\\";
+                    break;
+                case '\n':
+                    escaped = "\\n";
+                    break;
+                case '\r':
+                    escaped = "\\r";
+                    break;
+                case '\t':
+                    escaped = "\\t";
+                    break;
+                default:
+                    if (c >= 0x20 && c != '\u2028' && c != '\u2029') {
+                        continue;
+                    }
+                    escaped = String.format("\\u%04x", (int) c);
+            }
+            output.append(str, last, i).append(escaped);
+            last = i + 1;
+        }
+        output.append(str, last, str.length()).append('"');
+    }
+}
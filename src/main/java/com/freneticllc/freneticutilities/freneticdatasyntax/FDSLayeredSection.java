@@ -0,0 +1,364 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A view over an ordered stack of FDS sections (such as defaults, site, host, and runtime), without copying any of them.
+ * Reads find the value from the highest layer that has it, and sub-sections are seen as layered views themselves.
+ * Writes go to the top layer (creating any sections on the way that only lower layers have).
+ * Note that the "data" and "dataLowered" fields of a layered view are always empty: use the getters, or "flatten()" to build a plain section.
+ */
+public class FDSLayeredSection extends FDSSection {
+
+    /**
+     * Constructs the layered view.
+     * @param layers The layers, from the bottom (such as defaults) to the top (which receives all writes).
+     */
+    public FDSLayeredSection(FDSSection... layers) {
+        this(Arrays.asList(layers));
+    }
+
+    /**
+     * Constructs the layered view.
+     * @param layers The layers, from the bottom (such as defaults) to the top (which receives all writes).
+     */
+    public FDSLayeredSection(List<FDSSection> layers) {
+        if (layers.isEmpty()) {
+            throw new FDSInputException("A layered section needs at least one layer!");
+        }
+        this.layers = layers.toArray(new FDSSection[0]);
+        this.topRoot = this.layers[this.layers.length - 1];
+        this.writePath = new String[0];
+        this.sectionPathSplit = topRoot.sectionPathSplit;
+    }
+
+    private FDSLayeredSection(FDSSection[] layers, FDSSection topRoot, String[] writePath) {
+        this.layers = layers;
+        this.topRoot = topRoot;
+        this.writePath = writePath;
+        this.sectionPathSplit = topRoot.sectionPathSplit;
+    }
+
+    /**
+     * The layers at this level, bottom first.
+     */
+    private final FDSSection[] layers;
+
+    /**
+     * The top layer of the root view, which receives all writes.
+     */
+    private final FDSSection topRoot;
+
+    /**
+     * The keys leading to this view within the root view (empty for the root).
+     */
+    private final String[] writePath;
+
+    /**
+     * Sub-section views already built, by exact key and by lowercase key, so that repeated lookups do not rebuild them.
+     * Each is checked against the current layers before being reused. Created when first needed.
+     */
+    private volatile ConcurrentHashMap<String, FDSData> childViews, childViewsLowered;
+
+    /**
+     * Gets the layers of this view, bottom first.
+     * @return The layers.
+     */
+    public List<FDSSection> getLayers() {
+        return Collections.unmodifiableList(Arrays.asList(layers));
+    }
+
+    /**
+     * Returns the set of all keys at the root of this section, across all layers.
+     * Keys are ordered as first seen from the bottom layer up.
+     * @return All keys.
+     */
+    @Override
+    public Set<String> getRootKeys() {
+        LinkedHashSet<String> keys = new LinkedHashSet<>();
+        for (FDSSection layer : layers) {
+            keys.addAll(layer.getRootKeys());
+        }
+        return keys;
+    }
+
+    /**
+     * Gets data direct from the root level, from the highest layer that has it.
+     * Returns null if not found.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    @Override
+    public FDSData getRootData(String key) {
+        return resolve(key, false);
+    }
+
+    /**
+     * Gets data direct from the root level, from the highest layer that has it.
+     * Returns null if not found.
+     * Assumes input is already lowercase!
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    @Override
+    public FDSData getRootDataLowered(String key) {
+        return resolve(key, true);
+    }
+
+    /**
+     * Finds a root key across the layers.
+     * A sub-section (without a higher non-section value shadowing it) is returned as a layered view of every layer that has it,
+     * so that writes within it always go to the top layer.
+     */
+    private FDSData resolve(String key, boolean lowered) {
+        ConcurrentHashMap<String, FDSData> cache = lowered ? childViewsLowered : childViews;
+        FDSData top = null;
+        int topLayer = -1;
+        int sectionCount = 0;
+        for (int i = layers.length - 1; i >= 0; i--) {
+            FDSData got = lowered ? layers[i].getRootDataLowered(key) : layers[i].getRootData(key);
+            if (got == null) {
+                continue;
+            }
+            if (!(got.internal instanceof FDSSection)) {
+                if (top == null) {
+                    if (cache != null) {
+                        cache.remove(key);
+                    }
+                    return got;
+                }
+                break;
+            }
+            if (top == null) {
+                top = got;
+                topLayer = i;
+            }
+            sectionCount++;
+        }
+        if (top == null) {
+            if (cache != null) {
+                cache.remove(key);
+            }
+            return null;
+        }
+        FDSData cached = cache == null ? null : cache.get(key);
+        if (cached != null && cached.precedingComments == top.precedingComments && cached.internal instanceof FDSLayeredSection
+                && hasLayers(((FDSLayeredSection) cached.internal).layers, key, lowered, topLayer)) {
+            return cached;
+        }
+        FDSSection[] subLayers = new FDSSection[sectionCount];
+        int index = sectionCount;
+        for (int i = topLayer; i >= 0 && index > 0; i--) {
+            FDSData got = lowered ? layers[i].getRootDataLowered(key) : layers[i].getRootData(key);
+            if (got != null) {
+                subLayers[--index] = (FDSSection) got.internal;
+            }
+        }
+        String[] subPath = Arrays.copyOf(writePath, writePath.length + 1);
+        subPath[writePath.length] = lowered ? layers[topLayer].findRootKey(key, top) : key;
+        FDSData output = new FDSData(new FDSLayeredSection(subLayers, topRoot, subPath), top.precedingComments);
+        if (cache == null) {
+            cache = new ConcurrentHashMap<>();
+            if (lowered) {
+                childViewsLowered = cache;
+            }
+            else {
+                childViews = cache;
+            }
+        }
+        cache.put(key, output);
+        return output;
+    }
+
+    /**
+     * Checks whether a cached sub-section view still holds exactly the sections the layers have for a key, from the top section-holding layer down.
+     */
+    private boolean hasLayers(FDSSection[] subLayers, String key, boolean lowered, int topLayer) {
+        int index = subLayers.length;
+        for (int i = topLayer; i >= 0; i--) {
+            FDSData got = lowered ? layers[i].getRootDataLowered(key) : layers[i].getRootData(key);
+            if (got == null) {
+                continue;
+            }
+            if (!(got.internal instanceof FDSSection)) {
+                break;
+            }
+            if (index == 0 || subLayers[--index] != got.internal) {
+                return false;
+            }
+        }
+        return index == 0;
+    }
+
+    /**
+     * Gets every root entry across all layers, in the order of "getRootKeys".
+     */
+    @Override
+    Map<String, FDSData> rootEntries() {
+        LinkedHashMap<String, FDSData> output = new LinkedHashMap<>();
+        for (String key : getRootKeys()) {
+            output.put(key, getRootData(key));
+        }
+        return output;
+    }
+
+    /**
+     * Gets every root entry across all layers by lowercase key.
+     */
+    @Override
+    Map<String, FDSData> rootEntriesLowered() {
+        LinkedHashMap<String, FDSData> output = new LinkedHashMap<>();
+        for (String key : getRootKeys()) {
+            String lowered = FDSUtility.toLowerCase(key);
+            if (!output.containsKey(lowered)) {
+                output.put(lowered, getRootDataLowered(lowered));
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Gets the comments at the end of the top layer.
+     */
+    @Override
+    List<String> rootPostComments() {
+        return layers[layers.length - 1].postComments;
+    }
+
+    /**
+     * Finds the original-case key of root data found by lowercase lookup, from the highest layer that has the key.
+     */
+    @Override
+    String findRootKey(String lowered, FDSData found) {
+        for (int i = layers.length - 1; i >= 0; i--) {
+            FDSData got = layers[i].getRootDataLowered(lowered);
+            if (got != null) {
+                return layers[i].findRootKey(lowered, got);
+            }
+        }
+        return lowered;
+    }
+
+    /**
+     * Sets data direct on the root level of the top layer.
+     * The key is used exactly, even if it holds a path splitter.
+     * @param key The key to set data to.
+     * @param dat The data to read.
+     */
+    @Override
+    public void setRootData(String key, FDSData dat) {
+        write(new String[] { key }, key, subscriptions == null ? null : getRootData(key), dat);
+    }
+
+    /**
+     * Sets data to the top layer.
+     * May throw an FDSInputException if SetData failed!
+     * @param key The key to set data from.
+     * @param data The key to set data to.
+     */
+    @Override
+    public void setData(String key, FDSData data) {
+        if (key.length() > 0 && key.charAt(key.length() - 1) == sectionPathSplit) {
+            throw new FDSInputException("Invalid SetData key: Ends in a path splitter!");
+        }
+        write(FDSUtility.split(key, sectionPathSplit), key, subscriptions == null ? null : getData(key), data);
+    }
+
+    /**
+     * Writes data into the top layer at this view's path plus some keys, creating sections as needed.
+     * Notifies subscriptions on the top layer (with the full path) and on this view (with the given key).
+     */
+    private void write(String[] keys, String key, FDSData old, FDSData data) {
+        FDSSection section = topRoot;
+        int depth = writePath.length + keys.length - 1;
+        for (int i = 0; i < depth; i++) {
+            String part = i < writePath.length ? writePath[i] : keys[i - writePath.length];
+            FDSData got = section.getRootData(part);
+            if (got != null && got.internal instanceof FDSSection) {
+                section = (FDSSection) got.internal;
+            }
+            else if (got != null) {
+                throw new FDSInputException("Key contains non-section contents!");
+            }
+            else {
+                FDSSection created = new FDSSection();
+                created.sectionPathSplit = sectionPathSplit;
+                section.setRootData(part, new FDSData(created, new ArrayList<>()));
+                section = created;
+            }
+        }
+        String last = keys[keys.length - 1];
+        FDSData topOld = section == topRoot || topRoot.subscriptions == null ? null : section.getRootData(last);
+        section.setRootData(last, data);
+        if (section != topRoot && topRoot.subscriptions != null) {
+            StringBuilder path = new StringBuilder();
+            for (int i = 0; i < depth; i++) {
+                path.append(i < writePath.length ? writePath[i] : keys[i - writePath.length]).append(sectionPathSplit);
+            }
+            topRoot.subscriptions.changed(path.append(last).toString(), topOld, data);
+        }
+        if (subscriptions != null) {
+            subscriptions.changed(key, old, data);
+        }
+    }
+
+    /**
+     * Defaults data to the top layer (IE, sets it if not present in any layer!)
+     * @param key The key to set data from.
+     * @param data The key to set data to.
+     */
+    @Override
+    public void defaultData(String key, FDSData data) {
+        if (getData(key) == null) {
+            setData(key, data);
+        }
+    }
+
+    /**
+     * Builds a single plain section holding the combined result of all layers.
+     * The result shares no sections or lists with the layers.
+     * @return The flattened section.
+     */
+    @SuppressWarnings("unchecked")
+    public FDSSection flatten() {
+        FDSSection output = new FDSSection();
+        output.sectionPathSplit = sectionPathSplit;
+        for (String key : getRootKeys()) {
+            FDSData got = getRootData(key);
+            Object value = got.internal;
+            if (value instanceof FDSLayeredSection) {
+                value = ((FDSLayeredSection) value).flatten();
+            }
+            else if (value instanceof FDSSection) {
+                value = new FDSLayeredSection((FDSSection) value).flatten();
+            }
+            else if (value instanceof ArrayList) {
+                ArrayList<FDSData> list = new ArrayList<>();
+                for (FDSData item : (ArrayList<FDSData>) value) {
+                    list.add(new FDSData(item.internal, copyComments(item.precedingComments)));
+                }
+                value = list;
+            }
+            else if (value instanceof long[]) {
+                value = ((long[]) value).clone();
+            }
+            else if (value instanceof double[]) {
+                value = ((double[]) value).clone();
+            }
+            output.setRootData(key, new FDSData(value, copyComments(got.precedingComments)));
+        }
+        output.postComments.addAll(rootPostComments());
+        return output;
+    }
+
+    private static ArrayList<String> copyComments(List<String> comments) {
+        return comments == null ? new ArrayList<>() : new ArrayList<>(comments);
+    }
+}
@@ -0,0 +1,174 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+/**
+ * Metrics gathered during a single FDS load or save.
+ * Only gathered when "FDSUtility.metricsListener" is set.
+ */
+public class FDSMetrics {
+
+    /**
+     * The phases of work timed during a load or save.
+     */
+    public enum Phase {
+        /**
+         * Cleaning line endings and tabs (load only).
+         */
+        CLEANING,
+        /**
+         * Splitting the text into lines (load only).
+         */
+        SPLITTING,
+        /**
+         * Unescaping keys and values (load only).
+         */
+        UNESCAPING,
+        /**
+         * Interpreting the type of values (load only).
+         */
+        TYPE_INTERPRETATION,
+        /**
+         * Decoding or encoding Base64 binary values.
+         */
+        BASE64,
+        /**
+         * Escaping keys and values (save only).
+         */
+        ESCAPING,
+        /**
+         * Building the section tree (load) or walking it to build output (save).
+         * This is all time not spent in any other phase.
+         */
+        TREE
+    }
+
+    /**
+     * Constructs the metrics holder.
+     * @param save Whether these are metrics of a save (otherwise, a load).
+     */
+    public FDSMetrics(boolean save) {
+        this.save = save;
+    }
+
+    /**
+     * Whether these are metrics of a save (otherwise, a load).
+     */
+    public final boolean save;
+
+    /**
+     * How many characters of text were read or written.
+     */
+    public long characters;
+
+    /**
+     * How many bytes the text read or written takes in UTF-8 (the default file encoding).
+     * Counted from the text itself, so this is the same whether or not the text came from or went to a file.
+     */
+    public long bytes;
+
+    /**
+     * How many lines of text were read or written.
+     */
+    public long lines;
+
+    /**
+     * How many sections were read or written, not counting the root.
+     */
+    public long sections;
+
+    /**
+     * How many plain (non-list, non-binary) values were read or written, including list entries.
+     */
+    public long scalars;
+
+    /**
+     * How many lists were read or written.
+     */
+    public long lists;
+
+    /**
+     * How many binary values were read or written, including list entries.
+     */
+    public long binaries;
+
+    /**
+     * How many comment lines were read or written.
+     */
+    public long comments;
+
+    /**
+     * The deepest section nesting seen (0 for a root with no sub-sections).
+     */
+    public int peakDepth;
+
+    /**
+     * The total time taken, in nanoseconds.
+     */
+    public long totalNanos;
+
+    /**
+     * The time spent in each phase, in nanoseconds, indexed by "Phase.ordinal()".
+     */
+    public final long[] phaseNanos = new long[Phase.values().length];
+
+    /**
+     * Gets the time spent in a phase.
+     * @param phase The phase.
+     * @return The time, in nanoseconds.
+     */
+    public long getNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Gets a timestamp for the start of a phase, or 0 if metrics are disabled.
+     * @param metrics The metrics holder, or null if disabled.
+     * @return The timestamp.
+     */
+    static long start(FDSMetrics metrics) {
+        return metrics == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Records the end of a phase, if metrics are enabled.
+     * @param metrics The metrics holder, or null if disabled.
+     * @param phase The phase that ended.
+     * @param start The timestamp from "start".
+     */
+    static void end(FDSMetrics metrics, Phase phase, long start) {
+        if (metrics != null) {
+            metrics.phaseNanos[phase.ordinal()] += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Records the end of the whole load or save, assigning all otherwise unaccounted time to the TREE phase.
+     * @param start The timestamp from the start of the load or save.
+     */
+    void finish(long start) {
+        totalNanos = System.nanoTime() - start;
+        long accounted = 0;
+        for (int i = 0; i < phaseNanos.length; i++) {
+            accounted += phaseNanos[i];
+        }
+        phaseNanos[Phase.TREE.ordinal()] = Math.max(0, totalNanos - accounted);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(256);
+        builder.append(save ? "FDS save: " : "FDS load: ").append(characters).append(" characters, ").append(bytes).append(" bytes, ").append(lines).append(" lines, ")
+                .append(sections).append(" sections, ").append(scalars).append(" scalars, ").append(lists).append(" lists, ")
+                .append(binaries).append(" binaries, ").append(comments).append(" comments, peak depth ").append(peakDepth)
+                .append(", total ").append(totalNanos).append("ns");
+        for (Phase phase : Phase.values()) {
+            builder.append(", ").append(phase).append(' ').append(phaseNanos[phase.ordinal()]).append("ns");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,27 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+/**
+ * Receives metrics for each FDS load and save.
+ * Set "FDSUtility.metricsListener" to enable metrics collection.
+ * Calls happen on the thread that did the load or save, so implementations should return quickly.
+ */
+public interface FDSMetricsListener {
+
+    /**
+     * Called after a section is loaded from text.
+     * @param metrics The metrics of the load.
+     */
+    void loaded(FDSMetrics metrics);
+
+    /**
+     * Called after a section is saved to text.
+     * @param metrics The metrics of the save.
+     */
+    void saved(FDSMetrics metrics);
+}
@@ -0,0 +1,48 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+/**
+ * Represents a problem found while parsing FDS text in lenient mode.
+ * Unlike an exception, this holds no stack trace and is cheap to create.
+ */
+public class FDSParseError {
+
+    /**
+     * Constructs the parse error.
+     * @param line The line number of the problem (files start at 1).
+     * @param column The column number of the problem (lines start at 1).
+     * @param reason The reason for the error.
+     */
+    public FDSParseError(int line, int column, String reason) {
+        this.line = line;
+        this.column = column;
+        this.reason = reason;
+    }
+
+    /**
+     * The line number of the problem.
+     * Note that files start at 1.
+     */
+    public final int line;
+
+    /**
+     * The column number of the problem (after tabs are converted to spaces).
+     * Note that lines start at 1.
+     */
+    public final int column;
+
+    /**
+     * The reason for the error.
+     */
+    public final String reason;
+
+    @Override
+    public String toString() {
+        return "[FDS Parsing error] Line " + line + ", column " + column + ": " + reason;
+    }
+}
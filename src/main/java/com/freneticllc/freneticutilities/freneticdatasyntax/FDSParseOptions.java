@@ -0,0 +1,63 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.util.Map;
+
+/**
+ * Options for parsing FDS text, for use with "FDSSection.parse".
+ * An options instance may be shared between parses, including concurrent ones.
+ */
+public class FDSParseOptions {
+
+    /**
+     * Whether to collect errors and continue parsing, rather than throwing at the first error.
+     * Lines with errors are skipped (or, for bad indentation, attached to the nearest valid section).
+     */
+    public boolean lenient = false;
+
+    /**
+     * Whether to store lists whose entries are all longs (or all doubles), with no comments, as packed "long[]" or "double[]" arrays.
+     * This greatly reduces memory for large numeric lists. Read them with "FDSSection.getLongArray" or "FDSSection.getDoubleArray".
+     * Ignored when "recordPositions" is set, so that every list entry keeps its position.
+     */
+    public boolean packNumericLists = false;
+
+    /**
+     * A table to share equal key strings through, or null to not share keys.
+     * When many similar files are loaded, sharing one table saves memory for repeated keys.
+     * Must be safe for concurrent use if the options are used by concurrent parses (such as a ConcurrentHashMap).
+     */
+    public Map<String, String> keyInternTable = null;
+
+    /**
+     * Whether to record the source position of every key, section and list entry, into "FDSSection.sourcePositions" of the loaded root.
+     * Numeric lists are then never packed (see "packNumericLists"), since packed entries could not hold positions.
+     */
+    public boolean recordPositions = false;
+
+    /**
+     * Whether to keep loaded binary values as undecoded FDSBinary slices of their source text, only decoding them when accessed.
+     * This saves time and memory for binary values that are never read, but "getObject" and "FDSData.internal" then give an FDSBinary rather than a byte array.
+     * Read binary values with "FDSSection.getBinary" (or the buffer and stream forms) to work either way.
+     */
+    public boolean lazyBinary = false;
+
+    /**
+     * Returns a copy of these options, sharing the same key intern table (if any).
+     * @return The copy.
+     */
+    public FDSParseOptions copy() {
+        FDSParseOptions output = new FDSParseOptions();
+        output.lenient = lenient;
+        output.packNumericLists = packNumericLists;
+        output.keyInternTable = keyInternTable;
+        output.recordPositions = recordPositions;
+        output.lazyBinary = lazyBinary;
+        return output;
+    }
+}
@@ -0,0 +1,43 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.util.List;
+
+/**
+ * The result of "FDSSection.parse": a section, and any errors found building it.
+ */
+public class FDSParseResult {
+
+    /**
+     * Constructs the parse result.
+     * @param section The parsed section.
+     * @param errors The errors found.
+     */
+    public FDSParseResult(FDSSection section, List<FDSParseError> errors) {
+        this.section = section;
+        this.errors = errors;
+    }
+
+    /**
+     * The parsed section. If there were errors, this holds everything that could be parsed.
+     */
+    public final FDSSection section;
+
+    /**
+     * The errors found, in order of line. Empty if the text was valid.
+     */
+    public final List<FDSParseError> errors;
+
+    /**
+     * Returns whether the text parsed without any errors.
+     * @return Whether the text was valid.
+     */
+    public boolean isValid() {
+        return errors.isEmpty();
+    }
+}
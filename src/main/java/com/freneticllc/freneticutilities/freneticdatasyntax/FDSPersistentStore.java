@@ -0,0 +1,215 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Wraps an FDS section that is kept saved to a file.
+ * Changes from any number of threads are gathered up, and written out at most once per interval, with a durable save.
+ * All access to the section must go through this store (the section itself is not thread-safe).
+ */
+public class FDSPersistentStore implements AutoCloseable {
+
+    /**
+     * Opens a store for a file, loading the file if it exists (otherwise starting with an empty section).
+     * @param path The file to keep the section saved to.
+     * @param intervalMillis The minimum time between writes, in milliseconds.
+     * @return The store.
+     * @throws IOException If the file exists but cannot be read.
+     */
+    public static FDSPersistentStore open(Path path, long intervalMillis) throws IOException {
+        FDSSection section = Files.exists(path) ? new FDSSection(new String(Files.readAllBytes(path), StandardCharsets.UTF_8)) : new FDSSection();
+        return new FDSPersistentStore(section, path, intervalMillis, null);
+    }
+
+    /**
+     * Constructs the store.
+     * @param section The section to keep saved.
+     * @param path The file to keep the section saved to.
+     * @param intervalMillis The minimum time between writes, in milliseconds.
+     * @param options The save options, or null for the defaults.
+     */
+    public FDSPersistentStore(FDSSection section, Path path, long intervalMillis, FDSSaveOptions options) {
+        this.section = section;
+        this.path = path;
+        this.options = options == null ? new FDSSaveOptions() : options;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FDSPersistentStore " + path.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        task = scheduler.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The section being kept saved. Guarded by its own monitor.
+     */
+    private final FDSSection section;
+
+    /**
+     * The file the section is saved to.
+     */
+    public final Path path;
+
+    private final FDSSaveOptions options;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ScheduledFuture<?> task;
+
+    /**
+     * Held while writing the file, so that writes never overlap.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * How many changes have been made. Guarded by the section's monitor.
+     */
+    private long changeCount = 0;
+
+    /**
+     * How many changes have been written to the file. Guarded by the write lock.
+     */
+    private long savedCount = 0;
+
+    /**
+     * The error from the most recent failed background write, or null if the most recent write succeeded.
+     * Background writes keep running after an error.
+     */
+    public volatile Exception lastError = null;
+
+    /**
+     * Sets data to the section, to be saved at the next interval.
+     * May throw an FDSInputException if Set failed!
+     * @param key The key to set data from.
+     * @param input The key to set data to.
+     */
+    public void set(String key, Object input) {
+        synchronized (section) {
+            section.set(key, input);
+            changeCount++;
+        }
+    }
+
+    /**
+     * Sets data to the section, to be saved at the next interval.
+     * May throw an FDSInputException if SetData failed!
+     * @param key The key to set data from.
+     * @param data The key to set data to.
+     */
+    public void setData(String key, FDSData data) {
+        synchronized (section) {
+            section.setData(key, data);
+            changeCount++;
+        }
+    }
+
+    /**
+     * Defaults data to the section (IE, sets it if not present!), to be saved at the next interval.
+     * @param key The key to set data from.
+     * @param data The key to set data to.
+     */
+    public void defaultData(String key, FDSData data) {
+        synchronized (section) {
+            section.defaultData(key, data);
+            changeCount++;
+        }
+    }
+
+    /**
+     * Gets data from the section.
+     * Returns null if not found.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public FDSData getData(String key) {
+        synchronized (section) {
+            return section.getData(key);
+        }
+    }
+
+    /**
+     * Reads from the section while no other thread can change it.
+     * @param reader The function to read with.
+     * @param <T> The type of result.
+     * @return The result of the function.
+     */
+    public <T> T read(Function<FDSSection, T> reader) {
+        synchronized (section) {
+            return reader.apply(section);
+        }
+    }
+
+    /**
+     * Changes the section while no other thread can access it, to be saved at the next interval.
+     * @param updater The function to change the section with.
+     */
+    public void update(Consumer<FDSSection> updater) {
+        synchronized (section) {
+            updater.accept(section);
+            changeCount++;
+        }
+    }
+
+    /**
+     * Writes any unsaved changes to the file now.
+     * @throws IOException If the file cannot be written.
+     */
+    public void flush() throws IOException {
+        synchronized (writeLock) {
+            String text;
+            long count;
+            synchronized (section) {
+                count = changeCount;
+                if (count == savedCount) {
+                    return;
+                }
+                text = section.savetoString();
+            }
+            FDSFiles.save(path, options, writer -> writer.write(text));
+            savedCount = count;
+            lastError = null;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        }
+        catch (IOException | RuntimeException ex) {
+            // A scheduled task that throws is never run again, so record every failure and keep going.
+            lastError = ex;
+        }
+    }
+
+    /**
+     * Stops the background writes, and writes any unsaved changes.
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        task.cancel(false);
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
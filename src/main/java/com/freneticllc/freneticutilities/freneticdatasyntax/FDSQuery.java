@@ -0,0 +1,426 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compiled path query over FDS sections, reusable for any number of sections.
+ * Queries are made of path parts separated by a section path splitter (the default one, unless given), where each part is one of:
+ * a plain key, "*" (any one key or list index), "**" (any number of levels, including none, except at the end of a query where it matches
+ * everything below), or "[min..max]" (any key or list index that is an integer within the range, inclusive).
+ * For example: "servers.*.port", "**.enabled", or "zones.[0..9].name".
+ * A query only runs against sections using the same path splitter it was compiled with.
+ */
+public class FDSQuery {
+
+    /**
+     * A single match of a query.
+     */
+    public static class Match {
+
+        /**
+         * Constructs the match.
+         * @param path The full path of the matched data.
+         * @param data The matched data.
+         */
+        public Match(String path, FDSData data) {
+            this.path = path;
+            this.data = data;
+        }
+
+        /**
+         * The full path of the matched data. List entries are addressed by their index.
+         */
+        public final String path;
+
+        /**
+         * The matched data.
+         */
+        public final FDSData data;
+
+        @Override
+        public String toString() {
+            return path + ": " + data.outputable();
+        }
+    }
+
+    private static final int LITERAL = 0, ANY = 1, ANY_DEPTH = 2, RANGE = 3;
+
+    /**
+     * Compiles a query expression, matching keys exactly.
+     * May throw an FDSInputException if the expression is invalid!
+     * @param expression The query expression.
+     * @return The compiled query.
+     */
+    public static FDSQuery compile(String expression) {
+        return compile(expression, false);
+    }
+
+    /**
+     * Compiles a query expression.
+     * May throw an FDSInputException if the expression is invalid!
+     * @param expression The query expression.
+     * @param ignoreCase Whether to match keys case-insensitively (using the lowercase data of each section).
+     * @return The compiled query.
+     */
+    public static FDSQuery compile(String expression, boolean ignoreCase) {
+        return compile(expression, ignoreCase, FDSUtility.defaultSectionPathSplit);
+    }
+
+    /**
+     * Compiles a query expression for sections using a specific section path splitter.
+     * May throw an FDSInputException if the expression is invalid!
+     * @param expression The query expression, with parts separated by the given splitter.
+     * @param ignoreCase Whether to match keys case-insensitively (using the lowercase data of each section).
+     * @param sectionPathSplit The section path splitter.
+     * @return The compiled query.
+     */
+    public static FDSQuery compile(String expression, boolean ignoreCase, char sectionPathSplit) {
+        List<String> parts = splitParts(expression, sectionPathSplit);
+        for (int i = parts.size() - 1; i > 0; i--) {
+            // "**.**" matches exactly what "**" does, but would find every match more than once.
+            if (parts.get(i).equals("**") && parts.get(i - 1).equals("**")) {
+                parts.remove(i);
+            }
+        }
+        FDSQuery query = new FDSQuery(expression, ignoreCase, sectionPathSplit, parts.size());
+        int anyDepthCount = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            String part = parts.get(i);
+            if (part.length() == 0) {
+                throw new FDSInputException("Invalid query `" + expression + "`: contains an empty path part!");
+            }
+            if (part.equals("*")) {
+                query.kinds[i] = ANY;
+            }
+            else if (part.equals("**")) {
+                query.kinds[i] = ANY_DEPTH;
+                anyDepthCount++;
+            }
+            else if (part.startsWith("[") && part.endsWith("]")) {
+                String[] range = part.substring(1, part.length() - 1).split("\\.\\.", -1);
+                if (range.length != 2) {
+                    throw new FDSInputException("Invalid query `" + expression + "`: range `" + part + "` must be of the form [min..max]!");
+                }
+                try {
+                    query.mins[i] = Long.parseLong(range[0]);
+                    query.maxes[i] = Long.parseLong(range[1]);
+                }
+                catch (NumberFormatException ex) {
+                    throw new FDSInputException("Invalid query `" + expression + "`: range `" + part + "` must hold integers!");
+                }
+                query.kinds[i] = RANGE;
+            }
+            else {
+                query.kinds[i] = LITERAL;
+                query.literals[i] = ignoreCase ? FDSUtility.toLowerCase(part) : part;
+            }
+        }
+        query.mayRepeat = anyDepthCount > 1;
+        return query;
+    }
+
+    /**
+     * Splits a query expression into its parts, ignoring splitters within range brackets.
+     */
+    private static List<String> splitParts(String expression, char split) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        boolean inRange = false;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '[') {
+                inRange = true;
+            }
+            else if (c == ']') {
+                inRange = false;
+            }
+            else if (c == split && !inRange) {
+                parts.add(expression.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(expression.substring(start));
+        return parts;
+    }
+
+    private FDSQuery(String expression, boolean ignoreCase, char sectionPathSplit, int length) {
+        this.expression = expression;
+        this.ignoreCase = ignoreCase;
+        this.sectionPathSplit = sectionPathSplit;
+        kinds = new int[length];
+        literals = new String[length];
+        mins = new long[length];
+        maxes = new long[length];
+    }
+
+    /**
+     * The original query expression.
+     */
+    public final String expression;
+
+    /**
+     * Whether keys are matched case-insensitively.
+     */
+    public final boolean ignoreCase;
+
+    /**
+     * The section path splitter this query was compiled for.
+     */
+    public final char sectionPathSplit;
+
+    /**
+     * Whether the same path can be reached more than one way (with more than one "**"), so matches must be de-duplicated.
+     */
+    private boolean mayRepeat;
+
+    private final int[] kinds;
+
+    private final String[] literals;
+
+    private final long[] mins, maxes;
+
+    /**
+     * Gets the leading plain keys of this query (the parts before any wildcard), joined as a path.
+     * @return The literal prefix, or an empty string if the query starts with a wildcard.
+     */
+    public String getLiteralPrefix() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < kinds.length && kinds[i] == LITERAL; i++) {
+            if (i > 0) {
+                builder.append(sectionPathSplit);
+            }
+            builder.append(literals[i]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Runs this query against a section.
+     * May throw an FDSInputException if the section uses a different path splitter than this query!
+     * @param section The section to search.
+     * @return All matches, each path once. Matches at the same level are in document order.
+     */
+    public List<Match> run(FDSSection section) {
+        if (section.sectionPathSplit != sectionPathSplit) {
+            throw new FDSInputException("Query `" + expression + "` was compiled for path splitter '" + sectionPathSplit
+                    + "' but the section uses '" + section.sectionPathSplit + "'");
+        }
+        List<Match> output = new ArrayList<>();
+        collect(0, section, new StringBuilder(64), sectionPathSplit, output);
+        if (mayRepeat) {
+            Set<String> seen = new HashSet<>();
+            output.removeIf(match -> !seen.add(match.path));
+        }
+        return output;
+    }
+
+    /**
+     * Returns whether a full path (split into its keys) matches this query.
+     * @param path The path keys.
+     * @return Whether it matches.
+     */
+    public boolean matches(String[] path) {
+        return matchesFrom(0, path, 0);
+    }
+
+    private boolean matchesFrom(int part, String[] path, int index) {
+        while (part < kinds.length) {
+            if (kinds[part] == ANY_DEPTH) {
+                if (part + 1 == kinds.length) {
+                    return index < path.length;
+                }
+                for (int skip = index; skip <= path.length; skip++) {
+                    if (matchesFrom(part + 1, path, skip)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (index >= path.length || !matchesKey(part, path[index])) {
+                return false;
+            }
+            part++;
+            index++;
+        }
+        return index == path.length;
+    }
+
+    private boolean matchesKey(int part, String key) {
+        switch (kinds[part]) {
+            case LITERAL:
+                return ignoreCase ? literals[part].equals(FDSUtility.toLowerCase(key)) : literals[part].equals(key);
+            case RANGE:
+                return inRange(part, key);
+            default:
+                return true;
+        }
+    }
+
+    private boolean inRange(int part, String key) {
+        if (!FDSUtility.LONG_PATTERN.matcher(key).matches()) {
+            return false;
+        }
+        try {
+            long value = Long.parseLong(key);
+            return value >= mins[part] && value <= maxes[part];
+        }
+        catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    private void collect(int part, Object current, StringBuilder path, char split, List<Match> output) {
+        if (part == kinds.length) {
+            return;
+        }
+        int kind = kinds[part];
+        if (kind == ANY_DEPTH) {
+            if (part + 1 == kinds.length) {
+                collectAll(current, path, split, output);
+                return;
+            }
+            collect(part + 1, current, path, split, output);
+            if (current instanceof FDSSection) {
+                for (Map.Entry<String, FDSData> entry : ((FDSSection) current).rootEntries().entrySet()) {
+                    Object child = entry.getValue().internal;
+                    if (child instanceof FDSSection || listSize(child) > 0) {
+                        int length = appendKey(path, split, entry.getKey());
+                        collect(part, child, path, split, output);
+                        path.setLength(length);
+                    }
+                }
+            }
+            return;
+        }
+        if (current instanceof FDSSection) {
+            FDSSection section = (FDSSection) current;
+            if (kind == LITERAL) {
+                FDSData got = ignoreCase ? section.getRootDataLowered(literals[part]) : section.getRootData(literals[part]);
+                if (got != null) {
+                    String key = ignoreCase ? section.findRootKey(literals[part], got) : literals[part];
+                    int length = appendKey(path, split, key);
+                    step(part, got, path, split, output);
+                    path.setLength(length);
+                }
+                return;
+            }
+            for (Map.Entry<String, FDSData> entry : section.rootEntries().entrySet()) {
+                if (kind == RANGE && !inRange(part, entry.getKey())) {
+                    continue;
+                }
+                int length = appendKey(path, split, entry.getKey());
+                step(part, entry.getValue(), path, split, output);
+                path.setLength(length);
+            }
+            return;
+        }
+        if (kind == LITERAL) {
+            if (!inRangeIndex(literals[part], current)) {
+                return;
+            }
+            int index = Integer.parseInt(literals[part]);
+            int length = appendKey(path, split, literals[part]);
+            step(part, listEntry(current, index), path, split, output);
+            path.setLength(length);
+            return;
+        }
+        int size = listSize(current);
+        for (int i = 0; i < size; i++) {
+            if (kind == RANGE && (i < mins[part] || i > maxes[part])) {
+                continue;
+            }
+            int length = appendKey(path, split, Integer.toString(i));
+            step(part, listEntry(current, i), path, split, output);
+            path.setLength(length);
+        }
+    }
+
+    /**
+     * Handles a matched key: emits it if this was the last part, otherwise continues into it.
+     */
+    private void step(int part, FDSData matched, StringBuilder path, char split, List<Match> output) {
+        if (part + 1 == kinds.length) {
+            output.add(new Match(path.toString(), matched));
+        }
+        else if (matched.internal instanceof FDSSection || listSize(matched.internal) > 0) {
+            collect(part + 1, matched.internal, path, split, output);
+        }
+    }
+
+    /**
+     * Emits everything within a section or list, in document order (used for a trailing "**").
+     */
+    private void collectAll(Object current, StringBuilder path, char split, List<Match> output) {
+        if (current instanceof FDSSection) {
+            for (Map.Entry<String, FDSData> entry : ((FDSSection) current).rootEntries().entrySet()) {
+                int length = appendKey(path, split, entry.getKey());
+                output.add(new Match(path.toString(), entry.getValue()));
+                collectAll(entry.getValue().internal, path, split, output);
+                path.setLength(length);
+            }
+            return;
+        }
+        int size = listSize(current);
+        for (int i = 0; i < size; i++) {
+            int length = appendKey(path, split, Integer.toString(i));
+            output.add(new Match(path.toString(), listEntry(current, i)));
+            path.setLength(length);
+        }
+    }
+
+    private static boolean inRangeIndex(String key, Object list) {
+        if (!FDSUtility.LONG_PATTERN.matcher(key).matches() || key.length() > 9) {
+            return false;
+        }
+        int index = Integer.parseInt(key);
+        return index >= 0 && index < listSize(list);
+    }
+
+    private static int listSize(Object o) {
+        if (o instanceof ArrayList) {
+            return ((ArrayList) o).size();
+        }
+        if (o instanceof long[]) {
+            return ((long[]) o).length;
+        }
+        if (o instanceof double[]) {
+            return ((double[]) o).length;
+        }
+        return 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FDSData listEntry(Object list, int index) {
+        if (list instanceof long[]) {
+            return new FDSData(((long[]) list)[index], new ArrayList<>());
+        }
+        if (list instanceof double[]) {
+            return new FDSData(((double[]) list)[index], new ArrayList<>());
+        }
+        return ((ArrayList<FDSData>) list).get(index);
+    }
+
+    private static int appendKey(StringBuilder path, char split, String key) {
+        int length = path.length();
+        if (length > 0) {
+            path.append(split);
+        }
+        path.append(key);
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,425 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+/**
+ * Reads FDS text as a stream of events, one line at a time, without building an FDSSection tree.
+ * Memory use depends only on the nesting depth and the longest line, not on the size of the input.
+ * Events follow the same rules as loading an FDSSection, except that a key set twice in one section is reported twice
+ * (where a loaded section would keep only the later value).
+ */
+public class FDSReader implements Closeable {
+
+    /**
+     * The kinds of event a reader produces.
+     */
+    public enum Event {
+        /**
+         * A section starts, with a key and preceding comments.
+         */
+        SECTION_START,
+        /**
+         * The most recently started section ends.
+         */
+        SECTION_END,
+        /**
+         * A single value, with a key and preceding comments.
+         */
+        VALUE,
+        /**
+         * A list starts, with a key and preceding comments.
+         */
+        LIST_START,
+        /**
+         * A single list entry, with preceding comments.
+         */
+        LIST_ITEM,
+        /**
+         * The open list ends.
+         */
+        LIST_END,
+        /**
+         * The input has ended, with any trailing comments.
+         */
+        END
+    }
+
+    /**
+     * Constructs the reader.
+     * @param input The text to read.
+     */
+    public FDSReader(Reader input) {
+        this(input, null);
+    }
+
+    /**
+     * Constructs the reader.
+     * In lenient mode, errors are collected (see "getErrors") rather than thrown.
+     * @param input The text to read.
+     * @param options The parsing options, or null for the defaults.
+     */
+    public FDSReader(Reader input, FDSParseOptions options) {
+        this.input = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+        errors = options != null && options.lenient ? new ArrayList<>() : null;
+        interns = options == null ? null : options.keyInternTable;
+    }
+
+    /**
+     * A single produced event.
+     */
+    private static final class Pending {
+
+        Pending(Event type, String key, Object value, List<String> comments, int line, String[] path) {
+            this.type = type;
+            this.key = key;
+            this.value = value;
+            this.comments = comments;
+            this.line = line;
+            this.path = path;
+        }
+
+        final Event type;
+
+        final String key;
+
+        final Object value;
+
+        final List<String> comments;
+
+        final int line;
+
+        final String[] path;
+    }
+
+    private static final String[] NO_PATH = new String[0];
+
+    private final BufferedReader input;
+
+    private final List<FDSParseError> errors;
+
+    private final Map<String, String> interns;
+
+    /**
+     * The indentation of each open section, with the root at index 0.
+     */
+    private int[] indents = new int[16];
+
+    /**
+     * The key of each open section, with the root (unused) at index 0.
+     */
+    private String[] sectionKeys = new String[16];
+
+    /**
+     * How many sections are open below the root.
+     */
+    private int depth = 0;
+
+    private int lineNumber = 0;
+
+    private int pspaces = 0;
+
+    private String secwaiting = null;
+
+    private int secline = 0;
+
+    private ArrayList<String> seccomments = new ArrayList<>();
+
+    private final ArrayList<String> ccomments = new ArrayList<>();
+
+    /**
+     * The path of the open list, or null if no list is open.
+     */
+    private String[] listPath = null;
+
+    private int listIndex = 0;
+
+    /**
+     * Section ends found while a list was still open, to report once the list ends.
+     */
+    private final ArrayDeque<Pending> deferred = new ArrayDeque<>();
+
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+
+    private boolean finished = false;
+
+    private Pending current = null;
+
+    /**
+     * Reads the next event. After the END event, further calls return END again.
+     * @return The event type.
+     * @throws IOException If the input fails.
+     */
+    public Event next() throws IOException {
+        while (queue.isEmpty()) {
+            if (finished) {
+                return current.type;
+            }
+            String line = input.readLine();
+            if (line == null) {
+                finish();
+                break;
+            }
+            lineNumber++;
+            readLine(line.replace("\t", "    "));
+        }
+        current = queue.poll();
+        return current.type;
+    }
+
+    /**
+     * Gets the type of the current event.
+     * @return The event type, or null before the first call to "next".
+     */
+    public Event getEvent() {
+        return current == null ? null : current.type;
+    }
+
+    /**
+     * Gets the key of the current SECTION_START, VALUE, or LIST_START event.
+     * @return The key, or null for other events.
+     */
+    public String getKey() {
+        return current.key;
+    }
+
+    /**
+     * Gets the value of the current VALUE or LIST_ITEM event: a String, Long, Double, Boolean, or FDSBinary.
+     * @return The value, or null for other events.
+     */
+    public Object getValue() {
+        return current.value;
+    }
+
+    /**
+     * Gets the comments preceding the current event (or, for END, the trailing comments of the input).
+     * @return The comments.
+     */
+    public List<String> getComments() {
+        return current.comments;
+    }
+
+    /**
+     * Gets the line number the current event came from. Note that files start at 1.
+     * @return The line number.
+     */
+    public int getLine() {
+        return current.line;
+    }
+
+    /**
+     * Gets the full path of the current event: the section, value or list for most events, or the list and entry index for LIST_ITEM.
+     * The returned array must not be modified.
+     * @return The path keys.
+     */
+    public String[] getPath() {
+        return current.path;
+    }
+
+    /**
+     * Gets the errors found so far in lenient mode.
+     * @return The errors, or an empty list if not lenient.
+     */
+    public List<FDSParseError> getErrors() {
+        return errors == null ? Collections.<FDSParseError>emptyList() : errors;
+    }
+
+    /**
+     * Closes the underlying input.
+     * @throws IOException If the input fails to close.
+     */
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private void readLine(String line) {
+        int i = lineNumber - 1;
+        int spaces;
+        for (spaces = 0; spaces < line.length(); spaces++) {
+            if (line.charAt(spaces) != ' ') {
+                break;
+            }
+        }
+        if (spaces == line.length()) {
+            return;
+        }
+        String datum = FDSUtility.trimEnd(line.substring(spaces));
+        if (datum.startsWith("#")) {
+            ccomments.add(datum.substring(1));
+            return;
+        }
+        boolean listLine = datum.charAt(0) == '-' || datum.charAt(0) == '=';
+        if (!listLine) {
+            closeList();
+        }
+        if (spaces < pspaces) {
+            int target = depth;
+            while (target > 0 && indents[target] > spaces) {
+                target--;
+            }
+            if (indents[target] != spaces) {
+                if (errors == null) {
+                    StringBuilder valid = new StringBuilder();
+                    for (int d = 0; d <= depth; d++) {
+                        valid.append(d == 0 ? "" : " / ").append(indents[d]);
+                    }
+                    FDSSection.exception(i, line, "Spaced incorrectly. Spacing length instanceof less than previous spacing length,"
+                            + "but does not match the spacing value of any known section, valid: "
+                            + valid + ", found: " + spaces + ", was: " + pspaces);
+                }
+                errors.add(new FDSParseError(i + 1, spaces + 1, "Spaced incorrectly, spacing does not match any known section"));
+            }
+            popTo(target);
+        }
+        if (listLine) {
+            String clistline = FDSUtility.trimStart(datum.substring(1));
+            if (listPath == null) {
+                if (spaces >= pspaces && secwaiting != null) {
+                    String listkey = FDSSection.unEscapeKey(secwaiting, interns);
+                    listPath = path(listkey);
+                    listIndex = 0;
+                    queue.add(new Pending(Event.LIST_START, listkey, null, comments(seccomments), secline, listPath));
+                    seccomments = new ArrayList<>();
+                    secwaiting = null;
+                }
+                else {
+                    FDSSection.error(errors, i, spaces, line, "Line purpose unknown, attempted list entry when not building a list");
+                    ccomments.clear();
+                    return;
+                }
+            }
+            Object value;
+            if (datum.charAt(0) == '=') {
+                value = FDSSection.readBinary(line, spaces + datum.length() - clistline.length(), spaces + datum.length(), true, null, errors, i);
+                if (value == null) {
+                    ccomments.clear();
+                    return;
+                }
+            }
+            else {
+                value = FDSUtility.interpretType(FDSUtility.unEscape(clistline));
+            }
+            String[] itemPath = Arrays.copyOf(listPath, listPath.length + 1);
+            itemPath[listPath.length] = Integer.toString(listIndex++);
+            queue.add(new Pending(Event.LIST_ITEM, null, value, comments(ccomments), lineNumber, itemPath));
+            ccomments.clear();
+            return;
+        }
+        String startofline = "";
+        String endofline = "";
+        char type = '\0';
+        for (int spot = 0; spot < datum.length(); spot++) {
+            if (datum.charAt(spot) == ':' || datum.charAt(spot) == '=') {
+                type = datum.charAt(spot);
+                startofline = datum.substring(0, spot);
+                endofline = spot == datum.length() - 1 ? "": datum.substring(spot + 1);
+                break;
+            }
+        }
+        endofline = FDSUtility.trimStart(endofline);
+        if (type == '\0') {
+            FDSSection.error(errors, i, spaces, line, "Line purpose unknown");
+            ccomments.clear();
+            return;
+        }
+        if (startofline.length() == 0) {
+            FDSSection.error(errors, i, spaces, line, "Empty key label!");
+            ccomments.clear();
+            return;
+        }
+        if (spaces > pspaces && secwaiting != null) {
+            String seckey = FDSSection.unEscapeKey(secwaiting, interns);
+            if (++depth == indents.length) {
+                indents = Arrays.copyOf(indents, depth * 2);
+                sectionKeys = Arrays.copyOf(sectionKeys, depth * 2);
+            }
+            indents[depth] = spaces;
+            sectionKeys[depth] = seckey;
+            queue.add(new Pending(Event.SECTION_START, seckey, null, comments(seccomments), secline, path(null)));
+            seccomments = new ArrayList<>();
+            secwaiting = null;
+        }
+        if (type == '=') {
+            String key = FDSSection.unEscapeKey(startofline, interns);
+            Object decoded = FDSSection.readBinary(line, spaces + datum.length() - endofline.length(), spaces + datum.length(), true, null, errors, i);
+            if (decoded != null) {
+                queue.add(new Pending(Event.VALUE, key, decoded, comments(ccomments), lineNumber, path(key)));
+            }
+            ccomments.clear();
+        }
+        else if (endofline.length() == 0) {
+            secwaiting = startofline;
+            secline = lineNumber;
+            seccomments = new ArrayList<>(ccomments);
+            ccomments.clear();
+        }
+        else {
+            String key = FDSSection.unEscapeKey(startofline, interns);
+            Object value = FDSUtility.interpretType(FDSUtility.unEscape(endofline));
+            queue.add(new Pending(Event.VALUE, key, value, comments(ccomments), lineNumber, path(key)));
+            ccomments.clear();
+        }
+        pspaces = spaces;
+    }
+
+    /**
+     * Closes sections until only the given number remain open below the root.
+     * While a list is open, the section ends are held back until the list ends, to keep events properly nested.
+     */
+    private void popTo(int target) {
+        while (depth > target) {
+            Pending end = new Pending(Event.SECTION_END, null, null, Collections.<String>emptyList(), lineNumber, path(null));
+            if (listPath == null) {
+                queue.add(end);
+            }
+            else {
+                deferred.add(end);
+            }
+            depth--;
+        }
+    }
+
+    private void closeList() {
+        if (listPath == null) {
+            return;
+        }
+        queue.add(new Pending(Event.LIST_END, null, null, Collections.<String>emptyList(), lineNumber, listPath));
+        listPath = null;
+        queue.addAll(deferred);
+        deferred.clear();
+    }
+
+    private void finish() {
+        closeList();
+        popTo(0);
+        queue.add(new Pending(Event.END, null, null, comments(ccomments), lineNumber, NO_PATH));
+        ccomments.clear();
+        finished = true;
+    }
+
+    /**
+     * Gets the path of the open sections, plus a final key if given.
+     */
+    private String[] path(String key) {
+        String[] output = new String[key == null ? depth : depth + 1];
+        System.arraycopy(sectionKeys, 1, output, 0, depth);
+        if (key != null) {
+            output[depth] = key;
+        }
+        return output;
+    }
+
+    private static List<String> comments(List<String> comments) {
+        return comments.isEmpty() ? Collections.<String>emptyList() : new ArrayList<>(comments);
+    }
+}
@@ -0,0 +1,38 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Options for saving FDS sections to files, for use with "FDSSection.save".
+ */
+public class FDSSaveOptions {
+
+    /**
+     * The character set to write the file in.
+     */
+    public Charset charset = StandardCharsets.UTF_8;
+
+    /**
+     * Whether to write to a temporary file and rename it over the target, so the target is never left partly written.
+     * If the target is a symbolic link, the file it points to is replaced and the link is kept.
+     * If false, the target file is overwritten in place.
+     */
+    public boolean atomic = true;
+
+    /**
+     * Whether to force the written data (and, when atomic, the rename) to disk before returning.
+     */
+    public boolean fsync = true;
+
+    /**
+     * The size of the write buffer, in characters.
+     */
+    public int bufferSize = 64 * 1024;
+}
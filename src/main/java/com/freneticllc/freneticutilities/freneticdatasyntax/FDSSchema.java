@@ -0,0 +1,553 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.util.*;
+
+/**
+ * Declares the expected layout of an FDS section (paths, types, ranges, defaults and required keys).
+ * Compile it once with "compile()" and reuse the resulting validator for every section to check.
+ */
+public class FDSSchema {
+
+    /**
+     * The types a schema rule may expect.
+     */
+    public enum Type {
+        /**
+         * Any value at all, left unconverted.
+         */
+        ANY,
+        /**
+         * A textual value. Numbers and booleans are converted to their text form.
+         */
+        STRING,
+        /**
+         * A boolean value. Text "true" or "false" (any case) is converted.
+         */
+        BOOLEAN,
+        /**
+         * A long integer value. Integer text is converted.
+         */
+        LONG,
+        /**
+         * A double value. Integer values and numeric text are converted.
+         */
+        DOUBLE,
+        /**
+         * A binary value (either a byte array or an FDSBinary).
+         */
+        BINARY,
+        /**
+         * A list value. A single non-list value is converted to a one-entry list.
+         */
+        LIST,
+        /**
+         * A sub-section.
+         */
+        SECTION
+    }
+
+    /**
+     * A single declared path within a schema.
+     */
+    public static class Rule {
+
+        /**
+         * Constructs the rule.
+         * @param path The full path of the key.
+         * @param type The expected type.
+         * @param required Whether the key must be present.
+         */
+        public Rule(String path, Type type, boolean required) {
+            this.path = path;
+            this.type = type;
+            this.required = required;
+        }
+
+        /**
+         * The full path of the key.
+         */
+        public String path;
+
+        /**
+         * The expected type.
+         */
+        public Type type;
+
+        /**
+         * Whether the key must be present (when no default is given).
+         */
+        public boolean required;
+
+        /**
+         * The default value to apply when the key is missing, or null for none.
+         */
+        public Object defaultValue;
+
+        /**
+         * The minimum numeric value allowed, or null for no minimum.
+         */
+        public Double min;
+
+        /**
+         * The maximum numeric value allowed, or null for no maximum.
+         */
+        public Double max;
+
+        /**
+         * Sets the allowed numeric range of this rule.
+         * @param min The minimum value allowed.
+         * @param max The maximum value allowed.
+         * @return This rule.
+         */
+        public Rule range(double min, double max) {
+            this.min = min;
+            this.max = max;
+            return this;
+        }
+
+        /**
+         * Sets the minimum numeric value of this rule, leaving the maximum as it was (such as "port at least 1").
+         * @param min The minimum value allowed.
+         * @return This rule.
+         */
+        public Rule min(double min) {
+            this.min = min;
+            return this;
+        }
+
+        /**
+         * Sets the maximum numeric value of this rule, leaving the minimum as it was.
+         * @param max The maximum value allowed.
+         * @return This rule.
+         */
+        public Rule max(double max) {
+            this.max = max;
+            return this;
+        }
+
+        /**
+         * Sets the default value of this rule.
+         * @param def The default value.
+         * @return This rule.
+         */
+        public Rule defaultTo(Object def) {
+            this.defaultValue = def;
+            return this;
+        }
+    }
+
+    /**
+     * A problem found while validating a section.
+     */
+    public static class Violation {
+
+        /**
+         * Constructs the violation.
+         * @param path The full path of the key.
+         * @param line The line number of the problem, or 0 if unknown.
+         * @param reason The reason for the violation.
+         */
+        public Violation(String path, int line, String reason) {
+            this(path, line, 0, reason);
+        }
+
+        /**
+         * Constructs the violation.
+         * @param path The full path of the key.
+         * @param line The line number of the problem, or 0 if unknown.
+         * @param column The column number of the problem, or 0 if unknown.
+         * @param reason The reason for the violation.
+         */
+        public Violation(String path, int line, int column, String reason) {
+            this.path = path;
+            this.line = line;
+            this.column = column;
+            this.reason = reason;
+        }
+
+        /**
+         * The full path of the key.
+         */
+        public String path;
+
+        /**
+         * The line number of the problem, or 0 if unknown.
+         * This is the line of the containing section where nothing more precise is known.
+         */
+        public int line;
+
+        /**
+         * The column number of the problem, or 0 if unknown.
+         * Only known for keys of a section loaded with "FDSParseOptions.recordPositions".
+         */
+        public int column;
+
+        /**
+         * The reason for the violation.
+         */
+        public String reason;
+
+        @Override
+        public String toString() {
+            return "[FDS Schema violation] Line " + line + (column > 0 ? ", column " + column : "") + ", key `" + path + "`: " + reason;
+        }
+    }
+
+    /**
+     * A compiled schema, that checks a section in one walk of its tree.
+     */
+    public static class Validator {
+
+        private Validator(Node root) {
+            this.root = root;
+        }
+
+        private final Node root;
+
+        /**
+         * Validates a section, applying defaults for missing keys and converting values to their declared types.
+         * If the section was loaded with "FDSParseOptions.recordPositions", violations give the exact line and column of each key.
+         * @param section The section to validate.
+         * @return All violations found (empty if the section is valid).
+         */
+        public List<Violation> validate(FDSSection section) {
+            List<Violation> violations = new ArrayList<>();
+            validateNode(root, section, "", section.sourcePositions, violations);
+            return violations;
+        }
+    }
+
+    /**
+     * A compiled path segment.
+     */
+    private static class Node {
+
+        Rule rule;
+
+        LinkedHashMap<String, Node> children;
+
+        boolean hasDefaults;
+
+        boolean hasRequired;
+    }
+
+    /**
+     * All declared rules, in declaration order.
+     */
+    public ArrayList<Rule> rules = new ArrayList<>();
+
+    /**
+     * Declares a required key.
+     * @param path The full path of the key.
+     * @param type The expected type.
+     * @return The new rule.
+     */
+    public Rule require(String path, Type type) {
+        Rule rule = new Rule(path, type, true);
+        rules.add(rule);
+        return rule;
+    }
+
+    /**
+     * Declares an optional key.
+     * @param path The full path of the key.
+     * @param type The expected type.
+     * @return The new rule.
+     */
+    public Rule optional(String path, Type type) {
+        Rule rule = new Rule(path, type, false);
+        rules.add(rule);
+        return rule;
+    }
+
+    /**
+     * Declares an optional key with a default value.
+     * @param path The full path of the key.
+     * @param type The expected type.
+     * @param def The default value.
+     * @return The new rule.
+     */
+    public Rule optional(String path, Type type, Object def) {
+        return optional(path, type).defaultTo(def);
+    }
+
+    /**
+     * Compiles the declared rules into a reusable validator.
+     * May throw an FDSInputException if the rules conflict!
+     * @return The validator.
+     */
+    public Validator compile() {
+        Node root = new Node();
+        for (Rule rule : rules) {
+            String[] parts = FDSUtility.split(rule.path, FDSUtility.defaultSectionPathSplit);
+            Node current = root;
+            for (String part : parts) {
+                if (part.length() == 0) {
+                    throw new FDSInputException("Invalid schema key: `" + rule.path + "` contains an empty path part!");
+                }
+                if (current.rule != null && current.rule.type != Type.SECTION) {
+                    throw new FDSInputException("Invalid schema key: `" + rule.path + "` is within non-section key `" + current.rule.path + "`!");
+                }
+                if (current.children == null) {
+                    current.children = new LinkedHashMap<>();
+                }
+                Node next = current.children.get(part);
+                if (next == null) {
+                    next = new Node();
+                    current.children.put(part, next);
+                }
+                if (rule.defaultValue != null) {
+                    next.hasDefaults = true;
+                }
+                if (rule.required) {
+                    next.hasRequired = true;
+                }
+                current = next;
+            }
+            if (current.rule != null) {
+                throw new FDSInputException("Invalid schema key: `" + rule.path + "` is declared twice!");
+            }
+            if (current.children != null && rule.type != Type.SECTION) {
+                throw new FDSInputException("Invalid schema key: `" + rule.path + "` has sub-keys but is not a section!");
+            }
+            current.rule = rule;
+        }
+        return new Validator(root);
+    }
+
+    /**
+     * Validates a section using a freshly compiled validator.
+     * Prefer keeping the result of "compile()" when validating many sections.
+     * @param section The section to validate.
+     * @return All violations found (empty if the section is valid).
+     */
+    public List<Violation> validate(FDSSection section) {
+        return compile().validate(section);
+    }
+
+    private static void validateNode(Node node, FDSSection section, String prefix, FDSSourcePositions positions, List<Violation> violations) {
+        if (node.children == null) {
+            return;
+        }
+        for (Map.Entry<String, Node> entry : node.children.entrySet()) {
+            String key = entry.getKey();
+            Node child = entry.getValue();
+            String path = prefix + key;
+            FDSData got = section.getRootData(key);
+            if (got == null) {
+                if (child.rule != null && child.rule.defaultValue != null) {
+                    got = new FDSData(copyValue(child.rule.defaultValue), new ArrayList<>());
+                    section.setRootData(key, got);
+                }
+                else if (child.children != null && child.hasDefaults) {
+                    FDSSection created = new FDSSection();
+                    created.startingLine = section.startingLine;
+                    got = new FDSData(created, new ArrayList<>());
+                    section.setRootData(key, got);
+                }
+                else {
+                    reportMissing(child, path, section.startingLine, violations);
+                    continue;
+                }
+            }
+            if (child.rule != null) {
+                Object converted = convert(got.internal, child.rule);
+                if (converted == null) {
+                    violations.add(violation(path, section, got, positions, "Expected " + child.rule.type + " but found `" + describe(got.internal) + "`"));
+                    continue;
+                }
+                got.internal = converted;
+                if (!inRange(converted, child.rule)) {
+                    violations.add(violation(path, section, got, positions, "Value `" + converted + "` is outside the allowed range "
+                            + describeRange(child.rule)));
+                }
+            }
+            if (child.children != null) {
+                if (got.internal instanceof FDSSection) {
+                    validateNode(child, (FDSSection) got.internal, path + FDSUtility.defaultSectionPathSplit, positions, violations);
+                }
+                else if (child.rule == null) {
+                    violations.add(violation(path, section, got, positions, "Expected a section but found `" + describe(got.internal) + "`"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a violation for existing data, at its exact position if known, otherwise at the line of its section.
+     */
+    private static Violation violation(String path, FDSSection section, FDSData got, FDSSourcePositions positions, String reason) {
+        if (positions != null && positions.has(got)) {
+            return new Violation(path, positions.getLine(got), positions.getColumn(got), reason);
+        }
+        return new Violation(path, section.startingLine, reason);
+    }
+
+    private static void reportMissing(Node node, String path, int line, List<Violation> violations) {
+        if (node.rule != null && node.rule.required) {
+            violations.add(new Violation(path, line, "Required key is missing"));
+            return;
+        }
+        if (node.children == null || !node.hasRequired) {
+            return;
+        }
+        for (Map.Entry<String, Node> entry : node.children.entrySet()) {
+            reportMissing(entry.getValue(), path + FDSUtility.defaultSectionPathSplit + entry.getKey(), line, violations);
+        }
+    }
+
+    /**
+     * Deep-copies a default value, so that each validated section gets its own sections, lists and arrays.
+     */
+    private static Object copyValue(Object o) {
+        if (o instanceof FDSSection) {
+            FDSSection section = (FDSSection) o;
+            FDSSection output = new FDSSection();
+            output.sectionPathSplit = section.sectionPathSplit;
+            for (String key : section.getRootKeys()) {
+                output.setRootData(key, copyData(section.getRootData(key)));
+            }
+            output.postComments.addAll(section.postComments);
+            return output;
+        }
+        if (o instanceof ArrayList) {
+            ArrayList<FDSData> output = new ArrayList<>();
+            for (Object item : (ArrayList<?>) o) {
+                output.add(copyData((FDSData) item));
+            }
+            return output;
+        }
+        if (o instanceof long[]) {
+            return ((long[]) o).clone();
+        }
+        if (o instanceof double[]) {
+            return ((double[]) o).clone();
+        }
+        if (o instanceof byte[]) {
+            return ((byte[]) o).clone();
+        }
+        return o;
+    }
+
+    private static FDSData copyData(FDSData data) {
+        return new FDSData(copyValue(data.internal), data.precedingComments == null ? new ArrayList<>() : new ArrayList<>(data.precedingComments));
+    }
+
+    private static String describe(Object o) {
+        if (o instanceof FDSSection) {
+            return "(section)";
+        }
+        if (o instanceof ArrayList || o instanceof long[] || o instanceof double[]) {
+            return "(list)";
+        }
+        if (o instanceof byte[] || o instanceof FDSBinary) {
+            return "(binary)";
+        }
+        return String.valueOf(o);
+    }
+
+    /**
+     * Converts a value to the type of a rule.
+     * Returns null if the value cannot be converted.
+     */
+    private static Object convert(Object o, Rule rule) {
+        switch (rule.type) {
+            case ANY:
+                return o;
+            case STRING:
+                if (o instanceof String) {
+                    return o;
+                }
+                if (o instanceof Number || o instanceof Boolean) {
+                    return o.toString();
+                }
+                return null;
+            case BOOLEAN:
+                if (o instanceof Boolean) {
+                    return o;
+                }
+                if (o instanceof String) {
+                    String lowered = FDSUtility.toLowerCase((String) o);
+                    if (lowered.equals("true")) {
+                        return true;
+                    }
+                    if (lowered.equals("false")) {
+                        return false;
+                    }
+                }
+                return null;
+            case LONG:
+                if (o instanceof Long) {
+                    return o;
+                }
+                if (o instanceof Integer || o instanceof Short || o instanceof Byte) {
+                    return ((Number) o).longValue();
+                }
+                if (o instanceof String) {
+                    try {
+                        return Long.parseLong((String) o);
+                    }
+                    catch (NumberFormatException ex) {
+                        // Ignore
+                    }
+                }
+                return null;
+            case DOUBLE:
+                if (o instanceof Double) {
+                    return o;
+                }
+                if (o instanceof Number) {
+                    return ((Number) o).doubleValue();
+                }
+                if (o instanceof String) {
+                    try {
+                        return Double.parseDouble((String) o);
+                    }
+                    catch (NumberFormatException ex) {
+                        // Ignore
+                    }
+                }
+                return null;
+            case BINARY:
+                return o instanceof byte[] || o instanceof FDSBinary ? o : null;
+            case LIST:
+                if (o instanceof ArrayList || o instanceof long[] || o instanceof double[]) {
+                    return o;
+                }
+                if (o instanceof FDSSection) {
+                    return null;
+                }
+                ArrayList<FDSData> output = new ArrayList<>();
+                output.add(new FDSData(o, new ArrayList<>()));
+                return output;
+            case SECTION:
+                return o instanceof FDSSection ? o : null;
+            default:
+                return null;
+        }
+    }
+
+    private static String describeRange(Rule rule) {
+        if (rule.min == null) {
+            return "at most " + rule.max;
+        }
+        if (rule.max == null) {
+            return "at least " + rule.min;
+        }
+        return rule.min + " to " + rule.max;
+    }
+
+    private static boolean inRange(Object o, Rule rule) {
+        if ((rule.min == null && rule.max == null) || !(o instanceof Number)) {
+            return true;
+        }
+        double value = ((Number) o).doubleValue();
+        return (rule.min == null || value >= rule.min) && (rule.max == null || value <= rule.max);
+    }
+}
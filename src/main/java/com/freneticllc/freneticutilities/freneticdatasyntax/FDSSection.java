@@ -6,7 +6,14 @@
 
 package com.freneticllc.freneticutilities.freneticdatasyntax;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Represents a FreneticDataSyntax section or file.
@@ -15,22 +22,97 @@ public class FDSSection {
 
     /**
      * Constructs the FDS Section from textual data.
+     * Throws an exception at the first error found.
      * @param contents The contents of the data file.
      */
     public FDSSection(String contents) {
+        load(contents, null, null);
+    }
+
+    /**
+     * Parses textual data into an FDS section.
+     * In lenient mode, errors are collected rather than thrown, and the section holds everything that could be parsed.
+     * @param contents The contents of the data file.
+     * @param options The parsing options, or null for the defaults.
+     * @return The parse result.
+     */
+    public static FDSParseResult parse(String contents, FDSParseOptions options) {
+        List<FDSParseError> errors = options != null && options.lenient ? new ArrayList<>() : null;
+        FDSSection section = new FDSSection();
+        section.load(contents, options, errors);
+        return new FDSParseResult(section, errors == null ? Collections.<FDSParseError>emptyList() : errors);
+    }
+
+    /**
+     * Loads an FDS section from a UTF-8 file, without blocking the calling thread.
+     * The file is read with an asynchronous channel, and parsed on the thread that completes the read.
+     * @param path The file to load.
+     * @return A future of the loaded section.
+     */
+    public static CompletableFuture<FDSSection> loadAsync(Path path) {
+        return FDSAsyncFiles.load(path, null);
+    }
+
+    /**
+     * Loads an FDS section from a UTF-8 file, without blocking the calling thread.
+     * The file is read with an asynchronous channel, and parsed on the given executor.
+     * @param path The file to load.
+     * @param executor The executor to parse on.
+     * @return A future of the loaded section.
+     */
+    public static CompletableFuture<FDSSection> loadAsync(Path path, Executor executor) {
+        return FDSAsyncFiles.load(path, executor);
+    }
+
+    /**
+     * Loads textual data into this (empty) section.
+     * @param contents The contents of the data file.
+     * @param options The parsing options, or null for the defaults.
+     * @param errors The list to collect errors into, or null to throw at the first error.
+     */
+    private void load(String contents, FDSParseOptions options, List<FDSParseError> errors) {
+        // Packed entries are not FDSData objects, so they could not be given positions.
+        boolean packLists = options != null && options.packNumericLists && !options.recordPositions;
+        boolean lazyBinary = options != null && options.lazyBinary;
+        FDSSourcePositions positions = options != null && options.recordPositions ? new FDSSourcePositions() : null;
+        sourcePositions = positions;
+        Map<String, String> interns = options == null ? null : options.keyInternTable;
+        FDSMetricsListener listener = FDSUtility.metricsListener;
+        FDSMetrics metrics = listener == null ? null : new FDSMetrics(false);
+        long startTime = FDSMetrics.start(metrics);
+        if (metrics != null) {
+            metrics.characters = contents.length();
+            metrics.bytes = FDSUtility.utf8Length(contents, 0, contents.length());
+        }
         startingLine = 1;
+        long time = FDSMetrics.start(metrics);
         contents = FDSUtility.cleanFileData(contents);
-        HashMap<Integer, FDSSection> spacedsections = new HashMap<>();
-        spacedsections.put(0, this);
+        FDSMetrics.end(metrics, FDSMetrics.Phase.CLEANING, time);
+        int[] indents = new int[16];
+        FDSSection[] sections = new FDSSection[16];
+        sections[0] = this;
+        int depth = 0;
         ArrayList<String> ccomments = new ArrayList<>();
         ArrayList<String> seccomments = new ArrayList<>();
         FDSSection csection = this;
+        time = FDSMetrics.start(metrics);
         String[] data = FDSUtility.split(contents, '\n');
+        FDSMetrics.end(metrics, FDSMetrics.Phase.SPLITTING, time);
+        if (metrics != null) {
+            metrics.lines = data.length;
+        }
         int pspaces = 0;
         String secwaiting = null;
+        int secline = 0;
+        int seccolumn = 0;
+        int secoffset = 0;
         ArrayList<FDSData> clist = null;
+        FDSData clistdata = null;
+        int nextLineStart = 0;
         for (int i = 0; i < data.length; i++) {
             String line = data[i];
+            int lineStart = nextLineStart;
+            nextLineStart += line.length() + 1;
             int spaces;
             for (spaces = 0; spaces < line.length(); spaces++) {
                 if (line.charAt(spaces) != ' ') {
@@ -43,43 +125,81 @@ public class FDSSection {
             String datum = FDSUtility.trimEnd(line.substring(spaces));
             if (datum.startsWith("#")) {
                 ccomments.add(datum.substring(1));
+                if (metrics != null) {
+                    metrics.comments++;
+                }
                 continue;
             }
             if (spaces < pspaces) {
-                FDSSection temp = spacedsections.get(spaces);
-                if (temp != null) {
-                    csection = temp;
-                    for (int test : new ArrayList<>(spacedsections.keySet())) {
-                        if (test > spaces) {
-                            spacedsections.remove(test);
+                // Open sections always have strictly increasing indentation, so the match (or nearest smaller) is found by popping.
+                int open = depth;
+                while (depth > 0 && indents[depth] > spaces) {
+                    sections[depth--] = null;
+                }
+                if (indents[depth] != spaces) {
+                    if (errors == null) {
+                        StringBuilder valid = new StringBuilder();
+                        for (int d = 0; d <= open; d++) {
+                            valid.append(d == 0 ? "" : " / ").append(indents[d]);
                         }
+                        exception(i, line, "Spaced incorrectly. Spacing length instanceof less than previous spacing length,"
+                                + "but does not match the spacing value of any known section, valid: "
+                                + valid + ", found: " + spaces + ", was: " + pspaces);
                     }
+                    errors.add(new FDSParseError(i + 1, spaces + 1, "Spaced incorrectly, spacing does not match any known section"));
                 }
-                else {
-                    exception(i, line, "Spaced incorrectly. Spacing length instanceof less than previous spacing length,"
-                            + "but does not match the spacing value of any known section, valid: "
-                            + FDSUtility.join(" / ", spacedsections.keySet()) + ", found: " + spaces + ", was: " + pspaces);
-                }
+                csection = sections[depth];
             }
             if (datum.charAt(0) == '-' || datum.charAt(0) == '=') {
                 String clistline = FDSUtility.trimStart(datum.substring(1));
                 if (clist == null) {
                     if (spaces >= pspaces && secwaiting != null) {
                         clist = new ArrayList<>();
-                        csection.setRootData(FDSUtility.unEscapeKey(secwaiting), new FDSData(clist, new ArrayList<>(seccomments)));
+                        time = FDSMetrics.start(metrics);
+                        String listkey = unEscapeKey(secwaiting, interns);
+                        FDSMetrics.end(metrics, FDSMetrics.Phase.UNESCAPING, time);
+                        clistdata = new FDSData(clist, new ArrayList<>(seccomments));
+                        csection.setRootData(listkey, clistdata);
+                        if (positions != null) {
+                            positions.add(clistdata, secline, seccolumn, secoffset);
+                        }
                         seccomments.clear();
                         secwaiting = null;
+                        if (metrics != null) {
+                            metrics.lists++;
+                        }
                     }
                     else {
-                        exception(i, line, "Line purpose unknown, attempted list entry when not building a list");
+                        error(errors, i, spaces, line, "Line purpose unknown, attempted list entry when not building a list");
+                        ccomments.clear();
+                        continue;
                     }
                 }
-                String unescaped = FDSUtility.unEscape(clistline);
-                clist.add(new FDSData(datum.charAt(0) == '=' ? Base64.getDecoder().decode(unescaped) : FDSUtility.interpretType(unescaped),
-                        new ArrayList<>(ccomments)));
+                Object value;
+                if (datum.charAt(0) == '=') {
+                    value = readBinary(line, spaces + datum.length() - clistline.length(), spaces + datum.length(), lazyBinary, metrics, errors, i);
+                    if (value == null) {
+                        ccomments.clear();
+                        continue;
+                    }
+                }
+                else {
+                    time = FDSMetrics.start(metrics);
+                    String unescaped = FDSUtility.unEscape(clistline);
+                    FDSMetrics.end(metrics, FDSMetrics.Phase.UNESCAPING, time);
+                    value = interpretType(unescaped, metrics);
+                }
+                FDSData item = new FDSData(value, new ArrayList<>(ccomments));
+                clist.add(item);
+                if (positions != null) {
+                    positions.add(item, i + 1, spaces + 1, lineStart + spaces);
+                }
                 ccomments.clear();
                 continue;
             }
+            if (packLists && clist != null) {
+                packList(clistdata);
+            }
             clist = null;
             String startofline = "";
             String endofline = "";
@@ -94,48 +214,200 @@ public class FDSSection {
             }
             endofline = FDSUtility.trimStart(endofline);
             if (type == '\0') {
-                exception(i, line, "Line purpose unknown");
+                error(errors, i, spaces, line, "Line purpose unknown");
+                ccomments.clear();
+                continue;
             }
             if (startofline.length() == 0) {
-                exception(i, line, "Empty key label!");
+                error(errors, i, spaces, line, "Empty key label!");
+                ccomments.clear();
+                continue;
             }
             if (spaces > pspaces && secwaiting != null) {
                 FDSSection sect = new FDSSection();
-                csection.setRootData(FDSUtility.unEscapeKey(secwaiting), new FDSData(sect, new ArrayList<>(seccomments)));
+                sect.startingLine = secline;
+                time = FDSMetrics.start(metrics);
+                String seckey = unEscapeKey(secwaiting, interns);
+                FDSMetrics.end(metrics, FDSMetrics.Phase.UNESCAPING, time);
+                FDSData secdata = new FDSData(sect, new ArrayList<>(seccomments));
+                csection.setRootData(seckey, secdata);
+                if (positions != null) {
+                    positions.add(secdata, secline, seccolumn, secoffset);
+                }
                 seccomments.clear();
                 csection = sect;
-                spacedsections.put(spaces, sect);
+                if (++depth == indents.length) {
+                    indents = Arrays.copyOf(indents, depth * 2);
+                    sections = Arrays.copyOf(sections, depth * 2);
+                }
+                indents[depth] = spaces;
+                sections[depth] = sect;
                 secwaiting = null;
+                if (metrics != null) {
+                    metrics.sections++;
+                    metrics.peakDepth = Math.max(metrics.peakDepth, depth);
+                }
             }
             if (type == '=') {
-                csection.setRootData(FDSUtility.unEscapeKey(startofline), new FDSData(
-                        Base64.getDecoder().decode(FDSUtility.unEscape(endofline)), new ArrayList<>(ccomments)));
+                time = FDSMetrics.start(metrics);
+                String key = unEscapeKey(startofline, interns);
+                FDSMetrics.end(metrics, FDSMetrics.Phase.UNESCAPING, time);
+                Object decoded = readBinary(line, spaces + datum.length() - endofline.length(), spaces + datum.length(), lazyBinary, metrics, errors, i);
+                if (decoded != null) {
+                    FDSData binarydata = new FDSData(decoded, new ArrayList<>(ccomments));
+                    csection.setRootData(key, binarydata);
+                    if (positions != null) {
+                        positions.add(binarydata, i + 1, spaces + 1, lineStart + spaces);
+                    }
+                }
                 ccomments.clear();
             }
             else if (type == ':') {
                 if (endofline.length() == 0) {
                     secwaiting = startofline;
+                    secline = i + 1;
+                    seccolumn = spaces + 1;
+                    secoffset = lineStart + spaces;
                     seccomments = new ArrayList<>(ccomments);
                     ccomments.clear();
                 }
                 else {
-                    csection.setRootData(FDSUtility.unEscapeKey(startofline), new FDSData(
-                            FDSUtility.interpretType(FDSUtility.unEscape(endofline)), new ArrayList<>(ccomments)));
+                    time = FDSMetrics.start(metrics);
+                    String key = unEscapeKey(startofline, interns);
+                    String value = FDSUtility.unEscape(endofline);
+                    FDSMetrics.end(metrics, FDSMetrics.Phase.UNESCAPING, time);
+                    FDSData valuedata = new FDSData(interpretType(value, metrics), new ArrayList<>(ccomments));
+                    csection.setRootData(key, valuedata);
+                    if (positions != null) {
+                        positions.add(valuedata, i + 1, spaces + 1, lineStart + spaces);
+                    }
                     ccomments.clear();
                 }
             }
             else {
-                exception(i, line, "Internal issue: unrecognize 'type' value: " + type);
+                error(errors, i, spaces, line, "Internal issue: unrecognize 'type' value: " + type);
             }
             pspaces = spaces;
         }
+        if (packLists && clist != null) {
+            packList(clistdata);
+        }
         postComments.addAll(ccomments);
+        if (metrics != null) {
+            metrics.finish(startTime);
+            listener.loaded(metrics);
+        }
+    }
+
+    /**
+     * Unescapes a key while loading, sharing an equal key from the intern table if one is given.
+     */
+    static String unEscapeKey(String key, Map<String, String> interns) {
+        key = FDSUtility.unEscapeKey(key);
+        if (interns == null) {
+            return key;
+        }
+        String existing = interns.putIfAbsent(key, key);
+        return existing == null ? key : existing;
+    }
+
+    /**
+     * Replaces a just-loaded list with a packed primitive array, if all entries are longs (or all doubles) with no comments.
+     */
+    @SuppressWarnings("unchecked")
+    private static void packList(FDSData listdata) {
+        ArrayList<FDSData> list = (ArrayList<FDSData>) listdata.internal;
+        if (list.isEmpty()) {
+            return;
+        }
+        Class<?> type = list.get(0).internal.getClass();
+        if (type != Long.class && type != Double.class) {
+            return;
+        }
+        for (FDSData entry : list) {
+            if (entry.internal.getClass() != type || !entry.precedingComments.isEmpty()) {
+                return;
+            }
+        }
+        if (type == Long.class) {
+            long[] packed = new long[list.size()];
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = (Long) list.get(i).internal;
+            }
+            listdata.internal = packed;
+        }
+        else {
+            double[] packed = new double[list.size()];
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = (Double) list.get(i).internal;
+            }
+            listdata.internal = packed;
+        }
     }
 
-    private void exception(int linenumber, String line, String reason) {
+    /**
+     * Reads a binary value while loading, counting it in the metrics if enabled.
+     * The value is validated, then either decoded to a byte array or (if lazy) kept undecoded as an FDSBinary slice of its line.
+     * Returns null if the value is invalid and errors are being collected.
+     */
+    static Object readBinary(String line, int start, int end, boolean lazy, FDSMetrics metrics, List<FDSParseError> errors, int linenumber) {
+        if (line.indexOf('\\', start) >= 0) {
+            long time = FDSMetrics.start(metrics);
+            line = FDSUtility.unEscape(line.substring(start, end));
+            FDSMetrics.end(metrics, FDSMetrics.Phase.UNESCAPING, time);
+            start = 0;
+            end = line.length();
+        }
+        long time = FDSMetrics.start(metrics);
+        boolean valid = FDSBinary.isValidBase64(line, start, end);
+        FDSMetrics.end(metrics, FDSMetrics.Phase.BASE64, time);
+        if (!valid) {
+            if (errors == null) {
+                throw new IllegalArgumentException("Invalid binary value on line " + (linenumber + 1));
+            }
+            errors.add(new FDSParseError(linenumber + 1, start + 1, "Invalid binary value"));
+            return null;
+        }
+        if (metrics != null) {
+            metrics.binaries++;
+        }
+        FDSBinary binary = new FDSBinary(line, start, end);
+        if (lazy) {
+            return binary;
+        }
+        time = FDSMetrics.start(metrics);
+        byte[] bytes = binary.getBytes();
+        FDSMetrics.end(metrics, FDSMetrics.Phase.BASE64, time);
+        return bytes;
+    }
+
+    /**
+     * Interprets the type of a value while loading, counting it in the metrics if enabled.
+     */
+    private static Object interpretType(String value, FDSMetrics metrics) {
+        long time = FDSMetrics.start(metrics);
+        Object result = FDSUtility.interpretType(value);
+        FDSMetrics.end(metrics, FDSMetrics.Phase.TYPE_INTERPRETATION, time);
+        if (metrics != null) {
+            metrics.scalars++;
+        }
+        return result;
+    }
+
+    static void exception(int linenumber, String line, String reason) {
         throw new RuntimeException("[FDS Parsing error] Line " + (linenumber + 1) + ": " + reason + ", from line as follows: `" + line + "`");
     }
 
+    /**
+     * Records a parse error, or throws it if not collecting errors.
+     */
+    static void error(List<FDSParseError> errors, int linenumber, int column, String line, String reason) {
+        if (errors == null) {
+            exception(linenumber, line, reason);
+        }
+        errors.add(new FDSParseError(linenumber + 1, column + 1, reason));
+    }
+
     /**
      * Constructs the FDS section from no data, preparing it for usage as a new section.
      */
@@ -150,6 +422,12 @@ public class FDSSection {
      */
     public int startingLine = 0;
 
+    /**
+     * The source position of every key, section and list entry, if requested with "FDSParseOptions.recordPositions".
+     * Only set on the root section of a load, otherwise null.
+     */
+    public FDSSourcePositions sourcePositions = null;
+
     /**
      * All data contained by this section.
      */
@@ -172,6 +450,41 @@ public class FDSSection {
      */
     public char sectionPathSplit = FDSUtility.defaultSectionPathSplit;
 
+    /**
+     * The change subscriptions on this section, or null if there have never been any.
+     */
+    FDSSubscriptions subscriptions = null;
+
+    /**
+     * Subscribes to changes made through this section at paths matching a query (see "FDSQuery").
+     * The listener is called on the thread making the change.
+     * Changes are seen when made with "setRootData", "setData", "set", "defaultData" or "defaultObject" on this section,
+     * including changes below a section or list that is replaced.
+     * @param pattern The path query to match (written with this section's path splitter), such as "net.limits.*".
+     * @param listener The listener to call.
+     * @return The subscription, which can be cancelled.
+     */
+    public FDSSubscription subscribe(String pattern, FDSChangeListener listener) {
+        return subscribe(pattern, listener, null);
+    }
+
+    /**
+     * Subscribes to changes made through this section at paths matching a query (see "FDSQuery").
+     * Changes are queued and delivered in order on the executor, with one task per batch of pending changes.
+     * Changes are seen when made with "setRootData", "setData", "set", "defaultData" or "defaultObject" on this section,
+     * including changes below a section or list that is replaced.
+     * @param pattern The path query to match (written with this section's path splitter), such as "net.limits.*".
+     * @param listener The listener to call.
+     * @param executor The executor to deliver changes on, or null to deliver on the thread making the change.
+     * @return The subscription, which can be cancelled.
+     */
+    public FDSSubscription subscribe(String pattern, FDSChangeListener listener, Executor executor) {
+        if (subscriptions == null) {
+            subscriptions = new FDSSubscriptions(this);
+        }
+        return subscriptions.add(FDSQuery.compile(pattern, false, sectionPathSplit), listener, executor);
+    }
+
     /**
      * Returns the set of all keys at the root of this section.
      * @return All keys.
@@ -201,6 +514,7 @@ public class FDSSection {
     /**
      * Gets a String from the section. Can Stringify non-String values.
      * Returns null if not found.
+     * For packed numeric lists, this returns a new list, and changes to it do not affect the section.
      * @param key The key to get data from.
      * @return The data found, or the default.
      */
@@ -213,6 +527,22 @@ public class FDSSection {
         if (o instanceof ArrayList) {
             return (ArrayList<FDSData>) o;
         }
+        else if (o instanceof long[]) {
+            long[] packed = (long[]) o;
+            ArrayList<FDSData> output = new ArrayList<>(packed.length);
+            for (long value : packed) {
+                output.add(new FDSData(value, new ArrayList<>()));
+            }
+            return output;
+        }
+        else if (o instanceof double[]) {
+            double[] packed = (double[]) o;
+            ArrayList<FDSData> output = new ArrayList<>(packed.length);
+            for (double value : packed) {
+                output.add(new FDSData(value, new ArrayList<>()));
+            }
+            return output;
+        }
         else {
             ArrayList<FDSData> output = new ArrayList<>();
             output.add(got);
@@ -220,6 +550,139 @@ public class FDSSection {
         }
     }
 
+    /**
+     * Gets a list of longs from the section.
+     * Returns null if not found, or if any entry is not a long.
+     * For packed numeric lists (see "FDSParseOptions.packNumericLists"), this returns the stored array itself, so changes to it affect the section.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public long[] getLongArray(String key) {
+        FDSData got = getData(key);
+        if (got == null) {
+            return null;
+        }
+        Object o = got.internal;
+        if (o instanceof long[]) {
+            return (long[]) o;
+        }
+        ArrayList<FDSData> list = getDataList(key);
+        long[] output = new long[list.size()];
+        for (int i = 0; i < output.length; i++) {
+            Object entry = list.get(i).internal;
+            if (entry instanceof Long || entry instanceof Integer) {
+                output[i] = ((Number) entry).longValue();
+            }
+            else {
+                try {
+                    output[i] = Long.parseLong(entry.toString());
+                }
+                catch (NumberFormatException ex) {
+                    return null;
+                }
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Gets a list of doubles from the section.
+     * Returns null if not found, or if any entry is not a number.
+     * For packed double lists (see "FDSParseOptions.packNumericLists"), this returns the stored array itself, so changes to it affect the section.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public double[] getDoubleArray(String key) {
+        FDSData got = getData(key);
+        if (got == null) {
+            return null;
+        }
+        Object o = got.internal;
+        if (o instanceof double[]) {
+            return (double[]) o;
+        }
+        if (o instanceof long[]) {
+            long[] packed = (long[]) o;
+            double[] output = new double[packed.length];
+            for (int i = 0; i < output.length; i++) {
+                output[i] = packed[i];
+            }
+            return output;
+        }
+        ArrayList<FDSData> list = getDataList(key);
+        double[] output = new double[list.size()];
+        for (int i = 0; i < output.length; i++) {
+            Object entry = list.get(i).internal;
+            if (entry instanceof Number) {
+                output[i] = ((Number) entry).doubleValue();
+            }
+            else {
+                try {
+                    output[i] = Double.parseDouble(entry.toString());
+                }
+                catch (NumberFormatException ex) {
+                    return null;
+                }
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Gets a binary value from the section.
+     * Returns null if not found or not binary.
+     * For values loaded lazily (see "FDSParseOptions.lazyBinary"), this decodes freshly on each call.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public byte[] getBinary(String key) {
+        FDSBinary binary = getBinaryData(key);
+        return binary == null ? null : binary.getBytes();
+    }
+
+    /**
+     * Gets a binary value from the section, as a read-only buffer.
+     * Returns null if not found or not binary.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public ByteBuffer getBinaryBuffer(String key) {
+        FDSBinary binary = getBinaryData(key);
+        return binary == null ? null : binary.getByteBuffer();
+    }
+
+    /**
+     * Opens a stream that decodes a binary value from the section as it is read.
+     * Returns null if not found or not binary.
+     * @param key The key to get data from.
+     * @return The stream, or null.
+     */
+    public InputStream getBinaryStream(String key) {
+        FDSBinary binary = getBinaryData(key);
+        return binary == null ? null : binary.openStream();
+    }
+
+    /**
+     * Gets a binary value from the section, without decoding it.
+     * Returns null if not found or not binary.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public FDSBinary getBinaryData(String key) {
+        FDSData got = getData(key);
+        if (got == null) {
+            return null;
+        }
+        Object o = got.internal;
+        if (o instanceof FDSBinary) {
+            return (FDSBinary) o;
+        }
+        else if (o instanceof byte[]) {
+            return new FDSBinary((byte[]) o);
+        }
+        return null;
+    }
+
     /**
      * Gets a boolean from the section.
      * Returns def if not found.
@@ -464,7 +927,15 @@ public class FDSSection {
         }
 
         FDSSection sec = getSectionInternal(key.substring(0, lind), false, false);
-        sec.setRootData(key.substring(lind + 1), data);
+        String k = key.substring(lind + 1);
+        if (subscriptions == null || sec == this) {
+            // A key within this section itself (such as ".x") is notified by setRootData.
+            sec.setRootData(k, data);
+            return;
+        }
+        FDSData old = sec.getRootData(k);
+        sec.setRootData(k, data);
+        subscriptions.changed(key, old, data);
     }
 
     /**
@@ -497,6 +968,9 @@ public class FDSSection {
         String k = key.substring(lind + 1);
         if (sec.getRootData(k) == null) {
             sec.setRootData(k, data);
+            if (subscriptions != null) {
+                subscriptions.changed(key, null, data);
+            }
         }
     }
 
@@ -611,8 +1085,11 @@ public class FDSSection {
      * @param dat The data to read.
      */
     public void setRootData(String key, FDSData dat) {
-        data.put(key, dat);
+        FDSData old = data.put(key, dat);
         dataLowered.put(FDSUtility.toLowerCase(key), dat);
+        if (subscriptions != null) {
+            subscriptions.changed(key, old, dat);
+        }
     }
 
     /**
@@ -636,6 +1113,44 @@ public class FDSSection {
         return dataLowered.get(key);
     }
 
+    /**
+     * Gets every root entry of this section, in order.
+     * Views without their own data (such as FDSLayeredSection) build this through their getters.
+     */
+    Map<String, FDSData> rootEntries() {
+        return data;
+    }
+
+    /**
+     * Gets every root entry of this section by lowercase key, in order.
+     */
+    Map<String, FDSData> rootEntriesLowered() {
+        return dataLowered;
+    }
+
+    /**
+     * Gets the comments at the end of this section.
+     */
+    List<String> rootPostComments() {
+        return postComments;
+    }
+
+    /**
+     * Finds the original-case key of root data found by lowercase lookup.
+     * Returns the lowercase key itself if not found.
+     */
+    String findRootKey(String lowered, FDSData found) {
+        if (data.get(lowered) == found) {
+            return lowered;
+        }
+        for (Map.Entry<String, FDSData> entry : data.entrySet()) {
+            if (entry.getValue() == found) {
+                return entry.getKey();
+            }
+        }
+        return lowered;
+    }
+
     /**
      * Converts this FDSSection to a textual representation of itself.
      * @return The String.
@@ -660,49 +1175,273 @@ public class FDSSection {
      * @return The String.
      */
     public String savetoString(String tabs, String newline) {
+        StringBuilder outputBuilder = new StringBuilder(data.size() * 100);
+        try {
+            saveTo(outputBuilder, tabs, newline);
+        }
+        catch (IOException ex) {
+            // A StringBuilder never throws, this can't happen.
+            throw new UncheckedIOException(ex);
+        }
+        return outputBuilder.toString();
+    }
+
+    /**
+     * Writes the textual representation of this FDSSection straight to an output, without building it as one String first.
+     * @param output The output to write to, such as a Writer or StringBuilder.
+     * @throws IOException If the output fails.
+     */
+    public void saveTo(Appendable output) throws IOException {
+        saveTo(output, "", null);
+    }
+
+    /**
+     * Writes the textual representation of this FDSSection straight to an output, without building it as one String first.
+     * @param output The output to write to, such as a Writer or StringBuilder.
+     * @param tabs How many tabs to start with. Generally do not set this.
+     * @param newline What String to use as a new line. Generally do not set this.
+     * @throws IOException If the output fails.
+     */
+    public void saveTo(Appendable output, String tabs, String newline) throws IOException {
         if (newline == null) {
             newline = "\n";
         }
         if (tabs == null) {
             tabs = "";
         }
-        StringBuilder outputBuilder = new StringBuilder(data.size() * 100);
-        for (Map.Entry<String, FDSData> entry : data.entrySet()) {
+        FDSMetricsListener listener = FDSUtility.metricsListener;
+        if (listener == null) {
+            saveInternal(output, tabs, newline, null, 0);
+            return;
+        }
+        FDSMetrics metrics = new FDSMetrics(true);
+        long startTime = FDSMetrics.start(metrics);
+        CountingAppendable counter = new CountingAppendable(output);
+        saveInternal(counter, tabs, newline, metrics, 0);
+        metrics.characters = counter.characters;
+        metrics.bytes = counter.bytes;
+        metrics.lines = counter.lines;
+        metrics.finish(startTime);
+        listener.saved(metrics);
+    }
+
+    /**
+     * Saves this FDSSection to a file durably, using the default save options (UTF-8, atomic replace, and fsync).
+     * @param path The file to save to.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Path path) throws IOException {
+        save(path, null);
+    }
+
+    /**
+     * Saves this FDSSection to a file.
+     * By default, the text is streamed to a temporary file beside the target, flushed to disk, then renamed over the target,
+     * so that a crash never leaves a partly written file.
+     * @param path The file to save to.
+     * @param options The save options, or null for the defaults.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Path path, FDSSaveOptions options) throws IOException {
+        FDSFiles.save(path, options == null ? new FDSSaveOptions() : options, this::saveTo);
+    }
+
+    /**
+     * Saves this FDSSection to a UTF-8 file, replacing any existing content, without blocking on the write.
+     * The text is built on the calling thread, then written with an asynchronous channel.
+     * @param path The file to save to.
+     * @return A future that completes once the file is written.
+     */
+    public CompletableFuture<Void> saveAsync(Path path) {
+        return FDSAsyncFiles.save(this, path, null);
+    }
+
+    /**
+     * Saves this FDSSection to a UTF-8 file, replacing any existing content, without blocking on the write.
+     * The text is built on the given executor, so the section must not be changed until the future completes.
+     * @param path The file to save to.
+     * @param executor The executor to build the text on.
+     * @return A future that completes once the file is written.
+     */
+    public CompletableFuture<Void> saveAsync(Path path, Executor executor) {
+        return FDSAsyncFiles.save(this, path, executor);
+    }
+
+    /**
+     * Writes this FDSSection's textual representation to an output.
+     * Reads entries through "rootEntries", so that views (such as an FDSLayeredSection held as a sub-section) save their content.
+     * @param outputBuilder The output to append to.
+     * @param tabs The indentation of this section.
+     * @param newline What String to use as a new line.
+     * @param metrics The metrics to gather, or null if disabled.
+     * @param depth The nesting depth of this section.
+     */
+    private void saveInternal(Appendable outputBuilder, String tabs, String newline, FDSMetrics metrics, int depth) throws IOException {
+        if (metrics != null) {
+            metrics.peakDepth = Math.max(metrics.peakDepth, depth);
+        }
+        for (Map.Entry<String, FDSData> entry : rootEntries().entrySet()) {
             String key = entry.getKey();
             FDSData dat = entry.getValue();
-            for (String str : dat.precedingComments) {
-                outputBuilder.append(tabs).append("#").append(str).append(newline);
-            }
-            outputBuilder.append(tabs).append(FDSUtility.escapeKey(key));
+            saveComments(outputBuilder, tabs, newline, dat.precedingComments, metrics);
+            long time = FDSMetrics.start(metrics);
+            String escapedKey = FDSUtility.escapeKey(key);
+            FDSMetrics.end(metrics, FDSMetrics.Phase.ESCAPING, time);
+            outputBuilder.append(tabs).append(escapedKey);
             if (dat.internal instanceof FDSSection) {
-                outputBuilder.append(":").append(newline).append(((FDSSection)dat.internal).savetoString(tabs + "    ", newline));
+                if (metrics != null) {
+                    metrics.sections++;
+                }
+                outputBuilder.append(":").append(newline);
+                ((FDSSection)dat.internal).saveInternal(outputBuilder, tabs + "    ", newline, metrics, depth + 1);
             }
-            else if (dat.internal instanceof byte[]) {
-                outputBuilder.append("= ").append(FDSUtility.escape(dat.outputable())).append(newline);
+            else if (dat.internal instanceof byte[] || dat.internal instanceof FDSBinary) {
+                outputBuilder.append("= ");
+                saveBinary(outputBuilder, dat.internal, metrics);
+                outputBuilder.append(newline);
             }
             else if (dat.internal instanceof ArrayList) {
+                if (metrics != null) {
+                    metrics.lists++;
+                }
                 outputBuilder.append(":").append(newline);
                 for (FDSData cdat : (ArrayList<FDSData>) dat.internal) {
-                    for (String com : cdat.precedingComments) {
-                        outputBuilder.append(tabs).append("#").append(com).append(newline);
-                    }
+                    saveComments(outputBuilder, tabs, newline, cdat.precedingComments, metrics);
                     outputBuilder.append(tabs);
-                    if (cdat.internal instanceof byte[]) {
+                    if (cdat.internal instanceof byte[] || cdat.internal instanceof FDSBinary) {
                         outputBuilder.append("= ");
+                        saveBinary(outputBuilder, cdat.internal, metrics);
                     }
                     else {
-                        outputBuilder.append("- ");
+                        outputBuilder.append("- ").append(saveValue(cdat, metrics));
                     }
-                    outputBuilder.append(FDSUtility.escape(cdat.outputable())).append(newline);
+                    outputBuilder.append(newline);
                 }
             }
+            else if (dat.internal instanceof long[] || dat.internal instanceof double[]) {
+                if (metrics != null) {
+                    metrics.lists++;
+                }
+                outputBuilder.append(":").append(newline);
+                savePacked(outputBuilder, tabs, newline, dat.internal, metrics);
+            }
             else {
-                outputBuilder.append(": ").append(FDSUtility.escape(dat.outputable())).append(newline);
+                outputBuilder.append(": ").append(saveValue(dat, metrics)).append(newline);
             }
         }
-        for (String str : postComments) {
+        saveComments(outputBuilder, tabs, newline, rootPostComments(), metrics);
+    }
+
+    /**
+     * Writes a set of comment lines to a builder.
+     */
+    private static void saveComments(Appendable outputBuilder, String tabs, String newline, List<String> comments, FDSMetrics metrics) throws IOException {
+        for (String str : comments) {
             outputBuilder.append(tabs).append("#").append(str).append(newline);
         }
-        return outputBuilder.toString();
+        if (metrics != null) {
+            metrics.comments += comments.size();
+        }
+    }
+
+    /**
+     * Writes the entries of a packed numeric list (a long or double array).
+     * Numbers never need escaping.
+     */
+    private static void savePacked(Appendable outputBuilder, String tabs, String newline, Object packed, FDSMetrics metrics) throws IOException {
+        if (packed instanceof long[]) {
+            for (long value : (long[]) packed) {
+                outputBuilder.append(tabs).append("- ").append(Long.toString(value)).append(newline);
+            }
+            if (metrics != null) {
+                metrics.scalars += ((long[]) packed).length;
+            }
+        }
+        else {
+            for (double value : (double[]) packed) {
+                outputBuilder.append(tabs).append("- ").append(Double.toString(value)).append(newline);
+            }
+            if (metrics != null) {
+                metrics.scalars += ((double[]) packed).length;
+            }
+        }
+    }
+
+    /**
+     * Gets the escaped textual form of a single non-binary value, counting it in the metrics if enabled.
+     */
+    private static String saveValue(FDSData dat, FDSMetrics metrics) {
+        long time = FDSMetrics.start(metrics);
+        String result = FDSUtility.escape(dat.outputable());
+        FDSMetrics.end(metrics, FDSMetrics.Phase.ESCAPING, time);
+        if (metrics != null) {
+            metrics.scalars++;
+        }
+        return result;
+    }
+
+    /**
+     * Writes the Base64 form of a binary value (a byte array or FDSBinary) straight to the output, counting it in the metrics if enabled.
+     * Base64 text never needs escaping.
+     */
+    private static void saveBinary(Appendable outputBuilder, Object binary, FDSMetrics metrics) throws IOException {
+        long time = FDSMetrics.start(metrics);
+        if (binary instanceof FDSBinary) {
+            ((FDSBinary) binary).appendEncoded(outputBuilder);
+        }
+        else {
+            FDSBinary.appendEncoded((byte[]) binary, outputBuilder);
+        }
+        FDSMetrics.end(metrics, FDSMetrics.Phase.BASE64, time);
+        if (metrics != null) {
+            metrics.binaries++;
+        }
+    }
+
+    /**
+     * Passes output through while counting characters, UTF-8 bytes and lines, for save metrics.
+     */
+    private static class CountingAppendable implements Appendable {
+
+        CountingAppendable(Appendable output) {
+            this.output = output;
+        }
+
+        final Appendable output;
+
+        long characters;
+
+        long bytes;
+
+        long lines;
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            characters += end - start;
+            bytes += FDSUtility.utf8Length(csq, start, end);
+            for (int i = start; i < end; i++) {
+                if (csq.charAt(i) == '\n') {
+                    lines++;
+                }
+            }
+            output.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            characters++;
+            bytes += c < 0x80 ? 1 : FDSUtility.utf8Length(String.valueOf(c), 0, 1);
+            if (c == '\n') {
+                lines++;
+            }
+            output.append(c);
+            return this;
+        }
     }
 }
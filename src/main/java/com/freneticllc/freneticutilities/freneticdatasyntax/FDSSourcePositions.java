@@ -0,0 +1,126 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+/**
+ * The source positions of the data in a loaded FDS section, kept apart from the data objects themselves.
+ * Positions are looked up by data object identity, for example "positions.getLine(section.getData("a.b"))".
+ * Lines and columns start at 1. Offsets count characters from the start of the text after line endings are normalized
+ * and tabs are expanded to four spaces (so columns and offsets match the text as loaded, not tabs in the original).
+ */
+public class FDSSourcePositions {
+
+    /**
+     * Open-addressed table of data objects, compared by identity.
+     */
+    private Object[] keys = new Object[64];
+
+    /**
+     * The line, column and offset of each key slot.
+     */
+    private int[] values = new int[64 * 3];
+
+    private int size = 0;
+
+    /**
+     * Records the position of a data object.
+     */
+    void add(FDSData data, int line, int column, int offset) {
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        int slot = slot(keys, data);
+        if (keys[slot] == null) {
+            keys[slot] = data;
+            size++;
+        }
+        values[slot * 3] = line;
+        values[slot * 3 + 1] = column;
+        values[slot * 3 + 2] = offset;
+    }
+
+    private void grow() {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new Object[oldKeys.length * 2];
+        values = new int[keys.length * 3];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = slot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                System.arraycopy(oldValues, i * 3, values, slot * 3, 3);
+            }
+        }
+    }
+
+    /**
+     * Finds the slot holding an object, or the empty slot where it belongs.
+     */
+    private static int slot(Object[] keys, Object key) {
+        int hash = System.identityHashCode(key);
+        int slot = (hash ^ (hash >>> 16)) & (keys.length - 1);
+        while (keys[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return slot;
+    }
+
+    private int find(FDSData data) {
+        if (data == null) {
+            return -1;
+        }
+        int slot = slot(keys, data);
+        return keys[slot] == null ? -1 : slot;
+    }
+
+    /**
+     * Returns how many positions are recorded.
+     * @return The position count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether a data object has a recorded position.
+     * @param data The data object.
+     * @return Whether it has a position.
+     */
+    public boolean has(FDSData data) {
+        return find(data) >= 0;
+    }
+
+    /**
+     * Gets the line a data object was loaded from.
+     * @param data The data object.
+     * @return The line number, or 0 if unknown.
+     */
+    public int getLine(FDSData data) {
+        int slot = find(data);
+        return slot < 0 ? 0 : values[slot * 3];
+    }
+
+    /**
+     * Gets the column a data object's key (or list entry marker) started at.
+     * @param data The data object.
+     * @return The column number, or 0 if unknown.
+     */
+    public int getColumn(FDSData data) {
+        int slot = find(data);
+        return slot < 0 ? 0 : values[slot * 3 + 1];
+    }
+
+    /**
+     * Gets the character offset a data object's key (or list entry marker) started at.
+     * @param data The data object.
+     * @return The offset, or -1 if unknown.
+     */
+    public int getOffset(FDSData data) {
+        int slot = find(data);
+        return slot < 0 ? -1 : values[slot * 3 + 2];
+    }
+}
@@ -0,0 +1,229 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * A reusable set of stages that filter, rename and change FDS data while it streams from an FDSReader to an FDSEventWriter.
+ * Stage patterns are FDSQuery expressions, always matched against the original (input) path.
+ * Memory use depends only on the nesting depth, not on the size of the input.
+ * A section or list is only written once something within it is, so one left empty by the stages is dropped
+ * (an empty container would be written as a bare key, which FDS reads back as nothing).
+ */
+public class FDSStreamTransform {
+
+    private final List<FDSQuery> removes = new ArrayList<>();
+
+    private final List<FDSQuery> keeps = new ArrayList<>();
+
+    private final List<FDSQuery> renamePatterns = new ArrayList<>();
+
+    private final List<String> renameKeys = new ArrayList<>();
+
+    private final List<FDSQuery> mapPatterns = new ArrayList<>();
+
+    private final List<UnaryOperator<Object>> mappers = new ArrayList<>();
+
+    /**
+     * Drops every section, list, value or list entry matching a pattern (including everything within it).
+     * @param pattern The path query.
+     * @return This transform.
+     */
+    public FDSStreamTransform remove(String pattern) {
+        removes.add(FDSQuery.compile(pattern));
+        return this;
+    }
+
+    /**
+     * Keeps only data matching a pattern (including everything within it), plus the sections and lists leading to it.
+     * If used several times, data matching any of the patterns is kept.
+     * @param pattern The path query.
+     * @return This transform.
+     */
+    public FDSStreamTransform keep(String pattern) {
+        keeps.add(FDSQuery.compile(pattern));
+        return this;
+    }
+
+    /**
+     * Renames the key of every section, list or value matching a pattern.
+     * If several renames match, the first one added is used.
+     * @param pattern The path query.
+     * @param newKey The new key.
+     * @return This transform.
+     */
+    public FDSStreamTransform rename(String pattern, String newKey) {
+        renamePatterns.add(FDSQuery.compile(pattern));
+        renameKeys.add(newKey);
+        return this;
+    }
+
+    /**
+     * Changes every value or list entry matching a pattern.
+     * If several maps match, they are applied in the order added.
+     * If a mapper returns null, the value or list entry is dropped (and later maps are not applied to it).
+     * @param pattern The path query.
+     * @param mapper The function from the old value (a String, Long, Double, Boolean, or FDSBinary) to the new value, or null to drop it.
+     * @return This transform.
+     */
+    public FDSStreamTransform map(String pattern, UnaryOperator<Object> mapper) {
+        mapPatterns.add(FDSQuery.compile(pattern));
+        mappers.add(mapper);
+        return this;
+    }
+
+    /**
+     * An open section or list of the input.
+     */
+    private static final class Frame {
+
+        Frame(boolean list, boolean dropped, boolean keepAll, boolean written, String key, List<String> comments) {
+            this.list = list;
+            this.dropped = dropped;
+            this.keepAll = keepAll;
+            this.written = written;
+            this.key = key;
+            this.comments = comments;
+        }
+
+        final boolean list;
+
+        /**
+         * Whether this container and everything within it is removed.
+         */
+        final boolean dropped;
+
+        /**
+         * Whether everything within this container is kept (not subject to "keep" patterns).
+         */
+        final boolean keepAll;
+
+        /**
+         * Whether the start of this container has been written yet (it is held back until a value or list entry within it is written).
+         */
+        boolean written;
+
+        final String key;
+
+        final List<String> comments;
+    }
+
+    /**
+     * Streams all events from a reader, through the stages, to a writer.
+     * @param reader The reader to take events from.
+     * @param writer The writer to send events to.
+     * @throws IOException If the input or output fails.
+     */
+    public void run(FDSReader reader, FDSEventWriter writer) throws IOException {
+        Frame[] frames = new Frame[16];
+        frames[0] = new Frame(false, false, keeps.isEmpty(), true, null, null);
+        int depth = 0;
+        while (true) {
+            FDSReader.Event event = reader.next();
+            switch (event) {
+                case SECTION_START:
+                case LIST_START: {
+                    Frame parent = frames[depth];
+                    String[] path = reader.getPath();
+                    boolean dropped = parent.dropped || matchesAny(removes, path);
+                    boolean keepAll = parent.keepAll || matchesAny(keeps, path);
+                    Frame frame = new Frame(event == FDSReader.Event.LIST_START, dropped, keepAll, false, rename(path, reader.getKey()), reader.getComments());
+                    if (++depth == frames.length) {
+                        frames = Arrays.copyOf(frames, depth * 2);
+                    }
+                    frames[depth] = frame;
+                    break;
+                }
+                case SECTION_END:
+                case LIST_END: {
+                    Frame frame = frames[depth];
+                    frames[depth--] = null;
+                    if (frame.written) {
+                        if (frame.list) {
+                            writer.endList();
+                        }
+                        else {
+                            writer.endSection();
+                        }
+                    }
+                    break;
+                }
+                case VALUE:
+                case LIST_ITEM: {
+                    Frame parent = frames[depth];
+                    String[] path = reader.getPath();
+                    if (parent.dropped || matchesAny(removes, path) || !(parent.keepAll || matchesAny(keeps, path))) {
+                        break;
+                    }
+                    Object value = reader.getValue();
+                    for (int i = 0; i < mapPatterns.size() && value != null; i++) {
+                        if (mapPatterns.get(i).matches(path)) {
+                            value = mappers.get(i).apply(value);
+                        }
+                    }
+                    if (value == null) {
+                        break;
+                    }
+                    writeStarts(frames, depth, writer);
+                    if (event == FDSReader.Event.VALUE) {
+                        writer.value(rename(path, reader.getKey()), value, reader.getComments());
+                    }
+                    else {
+                        writer.listItem(value, reader.getComments());
+                    }
+                    break;
+                }
+                default:
+                    writer.end(reader.getComments());
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Writes the held-back starts of every open container up to a depth.
+     */
+    private static void writeStarts(Frame[] frames, int depth, FDSEventWriter writer) throws IOException {
+        int first = depth;
+        while (first > 0 && !frames[first].written) {
+            first--;
+        }
+        for (int i = first + 1; i <= depth; i++) {
+            Frame frame = frames[i];
+            if (frame.list) {
+                writer.startList(frame.key, frame.comments);
+            }
+            else {
+                writer.startSection(frame.key, frame.comments);
+            }
+            frame.written = true;
+        }
+    }
+
+    private String rename(String[] path, String key) {
+        for (int i = 0; i < renamePatterns.size(); i++) {
+            if (renamePatterns.get(i).matches(path)) {
+                return renameKeys.get(i);
+            }
+        }
+        return key;
+    }
+
+    private static boolean matchesAny(List<FDSQuery> queries, String[] path) {
+        for (FDSQuery query : queries) {
+            if (query.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,112 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A registered change listener on an FDS section, as returned by "FDSSection.subscribe".
+ * With an executor, changes are queued and delivered in order by a single task per batch, rather than on the thread making the change.
+ */
+public class FDSSubscription {
+
+    FDSSubscription(FDSSubscriptions owner, String indexKey, FDSQuery query, FDSChangeListener listener, Executor executor) {
+        this.owner = owner;
+        this.indexKey = indexKey;
+        this.query = query;
+        this.listener = listener;
+        this.executor = executor;
+    }
+
+    private final FDSSubscriptions owner;
+
+    /**
+     * The lowercase literal path prefix this subscription is indexed under.
+     */
+    final String indexKey;
+
+    /**
+     * The path query changes must match.
+     */
+    public final FDSQuery query;
+
+    /**
+     * The listener to deliver changes to.
+     */
+    public final FDSChangeListener listener;
+
+    /**
+     * The executor changes are delivered on, or null to deliver on the thread making the change.
+     */
+    public final Executor executor;
+
+    private volatile boolean cancelled = false;
+
+    /**
+     * Changes waiting to be delivered (when using an executor).
+     */
+    private final ConcurrentLinkedQueue<Object[]> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether a delivery task is queued or running (when using an executor).
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /**
+     * Stops delivering changes to the listener. Changes already queued for an executor are dropped.
+     */
+    public void cancel() {
+        cancelled = true;
+        pending.clear();
+        owner.remove(this);
+    }
+
+    /**
+     * Returns whether this subscription has been cancelled.
+     * @return Whether it is cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void deliver(String path, FDSData oldData, FDSData newData) {
+        if (cancelled) {
+            return;
+        }
+        if (executor == null) {
+            listener.changed(path, oldData, newData);
+            return;
+        }
+        pending.add(new Object[] { path, oldData, newData });
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Delivers queued changes on the executor.
+     * If the listener throws, the error goes to the executor as usual, and any remaining changes are delivered by a fresh task.
+     */
+    private void drain() {
+        try {
+            Object[] change;
+            while ((change = pending.poll()) != null) {
+                if (!cancelled) {
+                    listener.changed((String) change[0], (FDSData) change[1], (FDSData) change[2]);
+                }
+            }
+        }
+        finally {
+            scheduled.set(false);
+            if (!pending.isEmpty() && scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * The change subscriptions of one FDS section, indexed by the literal path prefix of each subscription's query.
+ * A change at a path only checks subscriptions whose prefix is above or at that path, or (when a section is replaced) below it.
+ */
+class FDSSubscriptions {
+
+    FDSSubscriptions(FDSSection section) {
+        this.section = section;
+    }
+
+    private final FDSSection section;
+
+    /**
+     * Subscriptions by lowercase literal prefix (using the section's path splitter).
+     */
+    private final ConcurrentSkipListMap<String, CopyOnWriteArrayList<FDSSubscription>> index = new ConcurrentSkipListMap<>();
+
+    FDSSubscription add(FDSQuery query, FDSChangeListener listener, Executor executor) {
+        String prefix = FDSUtility.toLowerCase(query.getLiteralPrefix());
+        FDSSubscription subscription = new FDSSubscription(this, prefix, query, listener, executor);
+        index.computeIfAbsent(prefix, k -> new CopyOnWriteArrayList<>()).add(subscription);
+        return subscription;
+    }
+
+    void remove(FDSSubscription subscription) {
+        index.computeIfPresent(subscription.indexKey, (k, list) -> {
+            list.remove(subscription);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    /**
+     * Notifies matching subscriptions of a change at a path, including changes below it if a section or list was replaced.
+     */
+    void changed(String path, FDSData oldData, FDSData newData) {
+        if (oldData == newData || index.isEmpty()) {
+            return;
+        }
+        char split = section.sectionPathSplit;
+        String lowered = FDSUtility.toLowerCase(path);
+        List<FDSSubscription> candidates = new ArrayList<>();
+        addAll(candidates, index.get(""));
+        for (int i = lowered.indexOf(split); i >= 0; i = lowered.indexOf(split, i + 1)) {
+            addAll(candidates, index.get(lowered.substring(0, i)));
+        }
+        addAll(candidates, index.get(lowered));
+        boolean below = isTree(oldData) || isTree(newData);
+        if (below) {
+            for (CopyOnWriteArrayList<FDSSubscription> list : index.subMap(lowered + split, lowered + split + Character.MAX_VALUE).values()) {
+                candidates.addAll(list);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        ArrayList<String> parts = new ArrayList<>();
+        for (String part : FDSUtility.split(path, split)) {
+            parts.add(part);
+        }
+        notify(candidates, parts, path, oldData, newData);
+        if (below) {
+            diff(candidates, parts, path, oldData, newData);
+        }
+    }
+
+    private static void addAll(List<FDSSubscription> candidates, Collection<FDSSubscription> list) {
+        if (list != null) {
+            candidates.addAll(list);
+        }
+    }
+
+    private static boolean isTree(FDSData data) {
+        return data != null && (data.internal instanceof FDSSection || data.internal instanceof ArrayList
+                || data.internal instanceof long[] || data.internal instanceof double[]);
+    }
+
+    private static void notify(List<FDSSubscription> candidates, ArrayList<String> parts, String path, FDSData oldData, FDSData newData) {
+        String[] pathArray = parts.toArray(new String[0]);
+        for (FDSSubscription subscription : candidates) {
+            if (subscription.query.matches(pathArray)) {
+                subscription.deliver(path, oldData, newData);
+            }
+        }
+    }
+
+    /**
+     * Notifies for every path below a replaced section or list whose data differs between the old and new trees.
+     */
+    private void diff(List<FDSSubscription> candidates, ArrayList<String> parts, String path, FDSData oldData, FDSData newData) {
+        Object oldTree = oldData == null ? null : oldData.internal;
+        Object newTree = newData == null ? null : newData.internal;
+        LinkedHashSet<String> keys = new LinkedHashSet<>();
+        childKeys(oldTree, keys);
+        childKeys(newTree, keys);
+        for (String key : keys) {
+            FDSData oldChild = child(oldTree, key);
+            FDSData newChild = child(newTree, key);
+            if (oldChild == newChild || (isPacked(oldTree) && isPacked(newTree) && oldChild != null && newChild != null && oldChild.internal.equals(newChild.internal))) {
+                continue;
+            }
+            String childPath = path + section.sectionPathSplit + key;
+            parts.add(key);
+            notify(candidates, parts, childPath, oldChild, newChild);
+            if (isTree(oldChild) || isTree(newChild)) {
+                diff(candidates, parts, childPath, oldChild, newChild);
+            }
+            parts.remove(parts.size() - 1);
+        }
+    }
+
+    /**
+     * Returns whether a tree is a packed numeric list, whose entries are compared by value (as their wrappers are made fresh on each access).
+     */
+    private static boolean isPacked(Object tree) {
+        return tree instanceof long[] || tree instanceof double[];
+    }
+
+    private static int listSize(Object tree) {
+        if (tree instanceof ArrayList) {
+            return ((ArrayList<?>) tree).size();
+        }
+        if (tree instanceof long[]) {
+            return ((long[]) tree).length;
+        }
+        if (tree instanceof double[]) {
+            return ((double[]) tree).length;
+        }
+        return 0;
+    }
+
+    private static void childKeys(Object tree, LinkedHashSet<String> keys) {
+        if (tree instanceof FDSSection) {
+            keys.addAll(((FDSSection) tree).getRootKeys());
+            return;
+        }
+        int size = listSize(tree);
+        for (int i = 0; i < size; i++) {
+            keys.add(Integer.toString(i));
+        }
+    }
+
+    private static FDSData child(Object tree, String key) {
+        if (tree instanceof FDSSection) {
+            return ((FDSSection) tree).getRootData(key);
+        }
+        int size = listSize(tree);
+        if (size == 0 || !FDSUtility.LONG_PATTERN.matcher(key).matches() || key.length() > 9) {
+            return null;
+        }
+        int index = Integer.parseInt(key);
+        if (index < 0 || index >= size) {
+            return null;
+        }
+        if (tree instanceof long[]) {
+            return new FDSData(((long[]) tree)[index], new ArrayList<>());
+        }
+        if (tree instanceof double[]) {
+            return new FDSData(((double[]) tree)[index], new ArrayList<>());
+        }
+        return (FDSData) ((ArrayList<?>) tree).get(index);
+    }
+}
@@ -0,0 +1,118 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A command line tool that streams an FDS file through an FDSStreamTransform, writing FDS or JSON.
+ * Run with no arguments other than "--help" for usage.
+ */
+public class FDSTool {
+
+    private static final String USAGE = "Usage: FDSTool [options] [input [output]]\n"
+            + "Reads FDS from the input file (or standard input) and writes it to the output file (or standard output).\n"
+            + "Options:\n"
+            + "  --json                     Write JSON instead of FDS.\n"
+            + "  --lenient                  Report parse errors and keep going, rather than stopping at the first.\n"
+            + "  --remove <pattern>         Drop data matching the pattern.\n"
+            + "  --keep <pattern>           Keep only data matching the pattern (may be repeated).\n"
+            + "  --rename <pattern>=<key>   Rename keys matching the pattern.\n"
+            + "  --replace <pattern>=<value> Replace values matching the pattern (for example, to redact them).\n"
+            + "Patterns are FDSQuery expressions, such as \"servers.*.password\" or \"**.secret\".";
+
+    /**
+     * Runs the tool.
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args) {
+        try {
+            System.exit(run(args));
+        }
+        catch (IOException | RuntimeException ex) {
+            System.err.println("FDSTool: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the tool, returning the exit code.
+     */
+    private static int run(String[] args) throws IOException {
+        FDSStreamTransform transform = new FDSStreamTransform();
+        FDSParseOptions options = new FDSParseOptions();
+        boolean json = false;
+        String inputName = null;
+        String outputName = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--help")) {
+                System.out.println(USAGE);
+                return 0;
+            }
+            else if (arg.equals("--json")) {
+                json = true;
+            }
+            else if (arg.equals("--lenient")) {
+                options.lenient = true;
+            }
+            else if (arg.equals("--remove") || arg.equals("--keep") || arg.equals("--rename") || arg.equals("--replace")) {
+                if (i + 1 == args.length) {
+                    System.err.println("Missing value for " + arg + "\n" + USAGE);
+                    return 2;
+                }
+                String value = args[++i];
+                if (arg.equals("--remove")) {
+                    transform.remove(value);
+                }
+                else if (arg.equals("--keep")) {
+                    transform.keep(value);
+                }
+                else {
+                    int split = value.indexOf('=');
+                    if (split <= 0) {
+                        System.err.println("Expected <pattern>=<value> for " + arg + "\n" + USAGE);
+                        return 2;
+                    }
+                    String pattern = value.substring(0, split);
+                    String replacement = value.substring(split + 1);
+                    if (arg.equals("--rename")) {
+                        transform.rename(pattern, replacement);
+                    }
+                    else {
+                        transform.map(pattern, old -> replacement);
+                    }
+                }
+            }
+            else if (arg.startsWith("--")) {
+                System.err.println("Unknown option " + arg + "\n" + USAGE);
+                return 2;
+            }
+            else if (inputName == null) {
+                inputName = arg;
+            }
+            else if (outputName == null) {
+                outputName = arg;
+            }
+            else {
+                System.err.println("Too many arguments\n" + USAGE);
+                return 2;
+            }
+        }
+        try (InputStream inputStream = inputName == null || inputName.equals("-") ? System.in : new FileInputStream(inputName);
+             OutputStream outputStream = outputName == null || outputName.equals("-") ? System.out : new FileOutputStream(outputName);
+             FDSReader reader = new FDSReader(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), 1 << 16), options);
+             Writer output = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 1 << 16)) {
+            transform.run(reader, json ? new FDSJsonWriter(output) : new FDSWriter(output));
+            for (FDSParseError error : reader.getErrors()) {
+                System.err.println(error);
+            }
+            return reader.getErrors().isEmpty() ? 0 : 1;
+        }
+    }
+}
@@ -32,6 +32,12 @@ public class FDSUtility {
      */
     public static char defaultSectionPathSplit = DEFAULT_SECTION_PATH_SPLIT;
 
+    /**
+     * The listener to receive metrics of every load and save, or null to disable metrics collection.
+     * When null (the default), no metrics are gathered at all.
+     */
+    public static FDSMetricsListener metricsListener = null;
+
     /**
      * Cleans file line endings, tabs, and any other data that may cause issues.
      * @param contents The original file data.
@@ -177,6 +183,31 @@ public class FDSUtility {
         return strings.toArray(new String[0]);
     }
 
+    /**
+     * Gets the number of bytes part of a text takes in UTF-8, without encoding it.
+     * Each half of a surrogate pair counts as 2 bytes, so a pair split between two calls still adds up to 4.
+     * @param text The text.
+     * @param start The index of the first character.
+     * @param end The index after the last character.
+     * @return The length in bytes.
+     */
+    static long utf8Length(CharSequence text, int start, int end) {
+        long length = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            }
+            else if (c < 0x800 || Character.isSurrogate(c)) {
+                length += 2;
+            }
+            else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
     /**
      * Quick ASCII toLowerCase method.
      */
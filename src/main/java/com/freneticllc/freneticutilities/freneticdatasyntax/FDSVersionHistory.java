@@ -0,0 +1,87 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.util.ArrayList;
+import java.util.function.UnaryOperator;
+
+/**
+ * A history of versions of an FDS section, with a current version that can be read from any thread without locking.
+ * Versions share all unchanged data, so keeping the full history is cheap.
+ * Rolling back adds the old version again as the newest one, so the history is never rewritten.
+ */
+public class FDSVersionHistory {
+
+    /**
+     * Constructs the history, starting from an initial version (version 0).
+     * @param initial The initial version.
+     */
+    public FDSVersionHistory(FDSVersionedSection initial) {
+        versions.add(initial);
+        current = initial;
+    }
+
+    /**
+     * All versions, oldest first. Guarded by this object's monitor.
+     */
+    private final ArrayList<FDSVersionedSection> versions = new ArrayList<>();
+
+    /**
+     * The newest version.
+     */
+    private volatile FDSVersionedSection current;
+
+    /**
+     * Gets the newest version.
+     * @return The current version.
+     */
+    public FDSVersionedSection current() {
+        return current;
+    }
+
+    /**
+     * Gets a version by its number.
+     * @param number The version number, where 0 is the initial version.
+     * @return The version.
+     */
+    public synchronized FDSVersionedSection version(int number) {
+        return versions.get(number);
+    }
+
+    /**
+     * Returns the number of the newest version.
+     * @return The current version number.
+     */
+    public synchronized int currentNumber() {
+        return versions.size() - 1;
+    }
+
+    /**
+     * Makes a new version by changing the current one.
+     * If the change returns the current version unchanged, no version is added.
+     * @param change The function that builds the new version from the current one.
+     * @return The number of the (possibly new) current version.
+     */
+    public synchronized int update(UnaryOperator<FDSVersionedSection> change) {
+        FDSVersionedSection next = change.apply(current);
+        if (next != current) {
+            versions.add(next);
+            current = next;
+        }
+        return versions.size() - 1;
+    }
+
+    /**
+     * Makes an older version current again, by adding it as a new version.
+     * @param number The version number to roll back to.
+     * @return The number of the new current version.
+     */
+    public synchronized int rollback(int number) {
+        FDSVersionedSection old = versions.get(number);
+        return update(section -> old);
+    }
+}
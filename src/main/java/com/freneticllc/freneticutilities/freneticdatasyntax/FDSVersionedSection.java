@@ -0,0 +1,482 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.util.*;
+
+/**
+ * An immutable, versioned FDS section.
+ * Every change returns a new version that shares all unchanged data with the old one, so keeping old versions is cheap,
+ * and any version may be read from any number of threads without locking.
+ * Sub-sections are themselves versioned sections. Data objects and lists handed out must not be modified.
+ */
+public final class FDSVersionedSection {
+
+    /**
+     * An empty section, using the default section path splitter.
+     */
+    public static final FDSVersionedSection EMPTY = new FDSVersionedSection(FDSHashTrie.empty(), FDSHashTrie.empty(), 0, Collections.<String>emptyList(), FDSUtility.defaultSectionPathSplit);
+
+    /**
+     * Builds a versioned copy of an FDS section.
+     * @param section The section to copy.
+     * @return The versioned section.
+     */
+    public static FDSVersionedSection of(FDSSection section) {
+        FDSVersionedSection output = empty(section.sectionPathSplit);
+        for (String key : section.getRootKeys()) {
+            output = output.setRootData(key, section.getRootData(key));
+        }
+        return section.postComments.isEmpty() ? output : output.withPostComments(section.postComments);
+    }
+
+    /**
+     * Gets an empty section using a specific section path splitter.
+     * @param sectionPathSplit The section path splitter.
+     * @return The empty section.
+     */
+    public static FDSVersionedSection empty(char sectionPathSplit) {
+        return sectionPathSplit == EMPTY.sectionPathSplit ? EMPTY : new FDSVersionedSection(FDSHashTrie.empty(), FDSHashTrie.empty(), 0, Collections.<String>emptyList(), sectionPathSplit);
+    }
+
+    private FDSVersionedSection(FDSHashTrie<Entry> entries, FDSHashTrie<FDSData> lowered, long nextOrder, List<String> postComments, char sectionPathSplit) {
+        this.entries = entries;
+        this.lowered = lowered;
+        this.nextOrder = nextOrder;
+        this.postComments = postComments;
+        this.sectionPathSplit = sectionPathSplit;
+    }
+
+    /**
+     * A root key's data, with its position in the insertion order.
+     */
+    private static final class Entry {
+
+        Entry(FDSData data, long order) {
+            this.data = data;
+            this.order = order;
+        }
+
+        final FDSData data;
+
+        final long order;
+    }
+
+    /**
+     * Root data by exact key.
+     */
+    private final FDSHashTrie<Entry> entries;
+
+    /**
+     * Root data by lowercase key.
+     */
+    private final FDSHashTrie<FDSData> lowered;
+
+    /**
+     * The insertion order number the next new key will get.
+     */
+    private final long nextOrder;
+
+    /**
+     * The comments at the end of the section (unmodifiable).
+     */
+    private final List<String> postComments;
+
+    /**
+     * The section path splitter for this section.
+     */
+    public final char sectionPathSplit;
+
+    /**
+     * Gets the comments at the end of this section.
+     * @return The comments (unmodifiable).
+     */
+    public List<String> getPostComments() {
+        return postComments;
+    }
+
+    /**
+     * Returns a version with different comments at the end of the section.
+     * @param comments The comments.
+     * @return The new version.
+     */
+    public FDSVersionedSection withPostComments(List<String> comments) {
+        return new FDSVersionedSection(entries, lowered, nextOrder, Collections.unmodifiableList(new ArrayList<>(comments)), sectionPathSplit);
+    }
+
+    /**
+     * Returns how many keys are at the root of this section.
+     * @return The key count.
+     */
+    public int size() {
+        return entries.size;
+    }
+
+    /**
+     * Returns the set of all keys at the root of this section, in the order they were first set.
+     * @return All keys.
+     */
+    public Set<String> getRootKeys() {
+        List<Map.Entry<String, Entry>> all = new ArrayList<>(entries.size);
+        entries.forEach((key, entry) -> all.add(new AbstractMap.SimpleImmutableEntry<>(key, entry)));
+        all.sort((a, b) -> Long.compare(a.getValue().order, b.getValue().order));
+        LinkedHashSet<String> keys = new LinkedHashSet<>();
+        for (Map.Entry<String, Entry> entry : all) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+
+    /**
+     * Gets data direct from the root level.
+     * Returns null if not found.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public FDSData getRootData(String key) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.data;
+    }
+
+    /**
+     * Gets data direct from the root level.
+     * Returns null if not found.
+     * Assumes input is already lowercase!
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public FDSData getRootDataLowered(String key) {
+        return lowered.get(key);
+    }
+
+    /**
+     * Gets data from the section.
+     * Returns null if not found.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public FDSData getData(String key) {
+        return find(key, false);
+    }
+
+    /**
+     * Gets data from the section, ignoring case.
+     * Returns null if not found.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public FDSData getDataLowered(String key) {
+        return find(FDSUtility.toLowerCase(key), true);
+    }
+
+    private FDSData find(String key, boolean lower) {
+        FDSVersionedSection current = this;
+        int start = 0;
+        while (true) {
+            int end = key.indexOf(sectionPathSplit, start);
+            String part = end < 0 ? key.substring(start) : key.substring(start, end);
+            FDSData got = lower ? current.getRootDataLowered(part) : current.getRootData(part);
+            if (end < 0 || got == null) {
+                return got;
+            }
+            if (!(got.internal instanceof FDSVersionedSection)) {
+                return null;
+            }
+            current = (FDSVersionedSection) got.internal;
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Checks if a key exists in the section.
+     * @param key The key to check for.
+     * @return Whether the key is present.
+     */
+    public boolean hasKey(String key) {
+        return getData(key) != null;
+    }
+
+    /**
+     * Gets a sub-section of this section.
+     * Returns null if not found.
+     * @param key The key of the section.
+     * @return The subsection.
+     */
+    public FDSVersionedSection getSection(String key) {
+        FDSData got = getData(key);
+        return got != null && got.internal instanceof FDSVersionedSection ? (FDSVersionedSection) got.internal : null;
+    }
+
+    /**
+     * Gets a sub-section of this section, ignoring case.
+     * Returns null if not found.
+     * @param key The key of the section.
+     * @return The subsection.
+     */
+    public FDSVersionedSection getSectionLowered(String key) {
+        FDSData got = getDataLowered(key);
+        return got != null && got.internal instanceof FDSVersionedSection ? (FDSVersionedSection) got.internal : null;
+    }
+
+    /**
+     * Gets an object from the section.
+     * Returns null if not found.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public Object getObject(String key) {
+        FDSData got = getData(key);
+        return got == null ? null : got.internal;
+    }
+
+    /**
+     * Gets a String from the section. Can Stringify non-String values.
+     * Returns null if not found.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public String getString(String key) {
+        Object o = getObject(key);
+        return o == null ? null : o.toString();
+    }
+
+    /**
+     * Gets an optional long from the section.
+     * Returns null if not found or not a number.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public Long getLong(String key) {
+        Object o = getObject(key);
+        if (o == null || o instanceof Long) {
+            return (Long) o;
+        }
+        if (o instanceof Integer) {
+            return ((Integer) o).longValue();
+        }
+        try {
+            return Long.parseLong(o.toString());
+        }
+        catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets an optional int from the section.
+     * Returns null if not found or not a number.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public Integer getInt(String key) {
+        Long asLong = getLong(key);
+        return asLong == null ? null : asLong.intValue();
+    }
+
+    /**
+     * Gets an optional double from the section.
+     * Returns null if not found or not a number.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public Double getDouble(String key) {
+        Object o = getObject(key);
+        if (o == null || o instanceof Double) {
+            return (Double) o;
+        }
+        if (o instanceof Number) {
+            return ((Number) o).doubleValue();
+        }
+        try {
+            return Double.parseDouble(o.toString());
+        }
+        catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets a boolean from the section.
+     * Returns null if not found.
+     * @param key The key to get data from.
+     * @return The data found, or null.
+     */
+    public Boolean getBoolean(String key) {
+        Object o = getObject(key);
+        if (o == null || o instanceof Boolean) {
+            return (Boolean) o;
+        }
+        return FDSUtility.toLowerCase(o.toString()).equals("true");
+    }
+
+    /**
+     * Returns a version with data set.
+     * May throw an FDSInputException if Set failed!
+     * @param key The key to set data from.
+     * @param input The key to set data to.
+     * @return The new version.
+     */
+    public FDSVersionedSection set(String key, Object input) {
+        return setData(key, new FDSData(input, new ArrayList<>()));
+    }
+
+    /**
+     * Returns a version with data set, creating sections along the path as needed.
+     * May throw an FDSInputException if SetData failed!
+     * @param key The key to set data from.
+     * @param data The key to set data to.
+     * @return The new version.
+     */
+    public FDSVersionedSection setData(String key, FDSData data) {
+        if (key.length() > 0 && key.charAt(key.length() - 1) == sectionPathSplit) {
+            throw new FDSInputException("Invalid SetData key: Ends in a path splitter!");
+        }
+        return with(FDSUtility.split(key, sectionPathSplit), 0, freeze(data));
+    }
+
+    /**
+     * Returns a version with data defaulted (IE, set if not present!)
+     * @param key The key to set data from.
+     * @param data The key to set data to.
+     * @return The new version, or this version if the key was already present.
+     */
+    public FDSVersionedSection defaultData(String key, FDSData data) {
+        return getData(key) == null ? setData(key, data) : this;
+    }
+
+    /**
+     * Returns a version with data defaulted (IE, set if not present!)
+     * @param key The key to set data from.
+     * @param input The key to set data to.
+     * @return The new version, or this version if the key was already present.
+     */
+    public FDSVersionedSection defaultObject(String key, Object input) {
+        return getData(key) == null ? set(key, input) : this;
+    }
+
+    private FDSVersionedSection with(String[] path, int index, FDSData data) {
+        String key = path[index];
+        if (index == path.length - 1) {
+            return putRoot(key, data);
+        }
+        FDSData existing = getRootData(key);
+        FDSVersionedSection child;
+        if (existing == null) {
+            child = empty(sectionPathSplit);
+        }
+        else if (existing.internal instanceof FDSVersionedSection) {
+            child = (FDSVersionedSection) existing.internal;
+        }
+        else {
+            throw new FDSInputException("Key contains non-section contents!");
+        }
+        FDSVersionedSection newChild = child.with(path, index + 1, data);
+        if (newChild == child) {
+            return this;
+        }
+        return putRoot(key, new FDSData(newChild, existing == null ? new ArrayList<>() : existing.precedingComments));
+    }
+
+    /**
+     * Returns a version with data set direct on the root level.
+     * The data is copied, with any FDSSection values converted to versioned sections.
+     * @param key The key to set data to.
+     * @param dat The data to set.
+     * @return The new version.
+     */
+    public FDSVersionedSection setRootData(String key, FDSData dat) {
+        return putRoot(key, freeze(dat));
+    }
+
+    private FDSVersionedSection putRoot(String key, FDSData dat) {
+        Entry existing = entries.get(key);
+        if (existing != null && existing.data == dat) {
+            return this;
+        }
+        Entry entry = new Entry(dat, existing == null ? nextOrder : existing.order);
+        return new FDSVersionedSection(entries.put(key, entry), lowered.put(FDSUtility.toLowerCase(key), dat), existing == null ? nextOrder + 1 : nextOrder, postComments, sectionPathSplit);
+    }
+
+    /**
+     * Copies data so that later changes to the original cannot reach this section.
+     */
+    @SuppressWarnings("unchecked")
+    private FDSData freeze(FDSData data) {
+        Object value = data.internal;
+        if (value instanceof FDSSection) {
+            value = of((FDSSection) value);
+        }
+        else if (value instanceof ArrayList) {
+            ArrayList<FDSData> list = new ArrayList<>();
+            for (FDSData item : (ArrayList<FDSData>) value) {
+                list.add(freeze(item));
+            }
+            value = list;
+        }
+        else if (value instanceof long[]) {
+            value = ((long[]) value).clone();
+        }
+        else if (value instanceof double[]) {
+            value = ((double[]) value).clone();
+        }
+        else if (value instanceof byte[]) {
+            value = ((byte[]) value).clone();
+        }
+        return new FDSData(value, copyComments(data.precedingComments));
+    }
+
+    /**
+     * Builds a plain, modifiable FDS section holding a copy of this version.
+     * @return The section.
+     */
+    public FDSSection toSection() {
+        FDSSection output = new FDSSection();
+        output.sectionPathSplit = sectionPathSplit;
+        for (String key : getRootKeys()) {
+            output.setRootData(key, thaw(getRootData(key)));
+        }
+        output.postComments.addAll(postComments);
+        return output;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FDSData thaw(FDSData data) {
+        Object value = data.internal;
+        if (value instanceof FDSVersionedSection) {
+            value = ((FDSVersionedSection) value).toSection();
+        }
+        else if (value instanceof ArrayList) {
+            ArrayList<FDSData> list = new ArrayList<>();
+            for (FDSData item : (ArrayList<FDSData>) value) {
+                list.add(thaw(item));
+            }
+            value = list;
+        }
+        else if (value instanceof long[]) {
+            value = ((long[]) value).clone();
+        }
+        else if (value instanceof double[]) {
+            value = ((double[]) value).clone();
+        }
+        else if (value instanceof byte[]) {
+            value = ((byte[]) value).clone();
+        }
+        return new FDSData(value, copyComments(data.precedingComments));
+    }
+
+    private static ArrayList<String> copyComments(List<String> comments) {
+        return comments == null ? new ArrayList<>() : new ArrayList<>(comments);
+    }
+
+    /**
+     * Converts this section to a textual representation of itself.
+     * @return The String.
+     */
+    public String savetoString() {
+        return toSection().savetoString();
+    }
+}
@@ -0,0 +1,131 @@
+//
+// This file is part of Frenetic Utilities, created by Frenetic LLC.
+// This code is Copyright (C) Frenetic LLC under the terms of the MIT license.
+// See README.md or LICENSE.txt in the FreneticUtilities source root for the contents of the license.
+//
+
+package com.freneticllc.freneticutilities.freneticdatasyntax;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a stream of events as FDS text, formatted exactly as "FDSSection.saveTo" would format the same data.
+ * Null values cannot be written in FDS, and throw an FDSInputException.
+ */
+public class FDSWriter implements FDSEventWriter {
+
+    /**
+     * Constructs the writer.
+     * @param output The output to write to.
+     */
+    public FDSWriter(Appendable output) {
+        this(output, "\n");
+    }
+
+    /**
+     * Constructs the writer.
+     * @param output The output to write to.
+     * @param newline What String to use as a new line.
+     */
+    public FDSWriter(Appendable output, String newline) {
+        this.output = output;
+        this.newline = newline;
+    }
+
+    private final Appendable output;
+
+    private final String newline;
+
+    /**
+     * The indentation for the current section depth.
+     */
+    private String tabs = "";
+
+    /**
+     * Reused to format values.
+     */
+    private final FDSData scratch = new FDSData();
+
+    @Override
+    public void startSection(String key, List<String> comments) throws IOException {
+        writeComments(comments);
+        output.append(tabs).append(FDSUtility.escapeKey(key)).append(":").append(newline);
+        tabs += "    ";
+    }
+
+    @Override
+    public void endSection() throws IOException {
+        tabs = tabs.substring(4);
+    }
+
+    @Override
+    public void value(String key, Object value, List<String> comments) throws IOException {
+        if (value == null) {
+            throw new FDSInputException("Cannot write a null value for key '" + key + "'");
+        }
+        writeComments(comments);
+        output.append(tabs).append(FDSUtility.escapeKey(key));
+        if (value instanceof byte[] || value instanceof FDSBinary) {
+            output.append("= ");
+            writeBinary(value);
+        }
+        else {
+            output.append(": ").append(escape(value));
+        }
+        output.append(newline);
+    }
+
+    @Override
+    public void startList(String key, List<String> comments) throws IOException {
+        writeComments(comments);
+        output.append(tabs).append(FDSUtility.escapeKey(key)).append(":").append(newline);
+    }
+
+    @Override
+    public void listItem(Object value, List<String> comments) throws IOException {
+        if (value == null) {
+            throw new FDSInputException("Cannot write a null list entry");
+        }
+        writeComments(comments);
+        output.append(tabs);
+        if (value instanceof byte[] || value instanceof FDSBinary) {
+            output.append("= ");
+            writeBinary(value);
+        }
+        else {
+            output.append("- ").append(escape(value));
+        }
+        output.append(newline);
+    }
+
+    @Override
+    public void endList() {
+        // Nothing to close.
+    }
+
+    @Override
+    public void end(List<String> comments) throws IOException {
+        writeComments(comments);
+    }
+
+    private void writeComments(List<String> comments) throws IOException {
+        for (String str : comments) {
+            output.append(tabs).append("#").append(str).append(newline);
+        }
+    }
+
+    private String escape(Object value) {
+        scratch.internal = value;
+        return FDSUtility.escape(scratch.outputable());
+    }
+
+    private void writeBinary(Object binary) throws IOException {
+        if (binary instanceof FDSBinary) {
+            ((FDSBinary) binary).appendEncoded(output);
+        }
+        else {
+            FDSBinary.appendEncoded((byte[]) binary, output);
+        }
+    }
+}